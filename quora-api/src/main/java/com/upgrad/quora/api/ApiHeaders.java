@@ -0,0 +1,50 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.service.common.Page;
+import org.springframework.http.HttpHeaders;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Headers and media types shared by the controllers: the next-cursor header of the list endpoints, the ETag and
+ * If-Match version headers of the question and answer edits, and the NDJSON media type of the import and export.
+ */
+public final class ApiHeaders {
+
+    // Response header carrying the cursor of the next page of a list, absent on the last page
+    public static final String NEXT_CURSOR_HEADER = "next-cursor";
+
+    // Newline delimited JSON, one question per line, accepted by the bulk import and written by the export
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    // The version of a question or answer is its entity tag, a strong one such as "3"
+    private static final Pattern VERSION_ETAG = Pattern.compile("\"(\\d{1,9})\"");
+
+    private ApiHeaders() {
+    }
+
+    public static HttpHeaders nextCursorHeaders(final Page<?> page) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            httpHeaders.add(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return httpHeaders;
+    }
+
+    public static HttpHeaders versionHeaders(final Integer version) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setETag("\"" + version + "\"");
+        return httpHeaders;
+    }
+
+    // Returns the version an If-Match header requires, or null when the edit may replace any version.
+    // A tag which is not a version, such as a weak tag, can never match, so it requires the version -1.
+    public static Integer ifMatchVersion(final String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        final Matcher matcher = VERSION_ETAG.matcher(ifMatch.trim());
+        return matcher.matches() ? Integer.valueOf(matcher.group(1)) : -1;
+    }
+}
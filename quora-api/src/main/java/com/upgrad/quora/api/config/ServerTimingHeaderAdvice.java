@@ -0,0 +1,81 @@
+package com.upgrad.quora.api.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.service.business.AdminBusinessService;
+import com.upgrad.quora.service.common.SqlStatistics;
+import com.upgrad.quora.service.dao.RequestSqlStatistics;
+import com.upgrad.quora.service.dao.RequestTiming;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Locale;
+
+/**
+ * Sends an admin who asked for it with the debug-timing header the Server-Timing breakdown of the request:
+ * auth is the token validation, db the SQL executed outside it, app the rest of the handling and serialize the JSON
+ * serialisation of the response; total is the sum. The header has to be set before the body is written, so the
+ * response is serialised once more here to time it, for these requests only.
+ * Endpoints which write their response themselves, such as the question export, do not get it.
+ */
+@ControllerAdvice
+public class ServerTimingHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    @Autowired
+    private AdminBusinessService adminBusinessService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public boolean supports(final MethodParameter returnType, final Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(final Object body, final MethodParameter returnType, final MediaType selectedContentType,
+                                  final Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  final ServerHttpRequest request, final ServerHttpResponse response) {
+        final RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            return body;
+        }
+        final long handledNanos = System.nanoTime() - timing.getStartedAt();
+        final SqlStatistics sql = RequestSqlStatistics.current();
+        // read before the admin check, whose own token lookup is timed as token validation too
+        final long authNanos = timing.getTokenValidationNanos();
+        final long dbNanos = sql == null ? 0 : Math.max(0, sql.getJdbcMicros() * 1000 - timing.getTokenValidationJdbcNanos());
+        if (!adminBusinessService.isAdmin(request.getHeaders().getFirst("authorization"))) {
+            return body;
+        }
+
+        long serializeNanos = 0;
+        if (body != null && MediaType.APPLICATION_JSON.isCompatibleWith(selectedContentType)) {
+            final long start = System.nanoTime();
+            try {
+                objectMapper.writeValueAsBytes(body);
+            } catch (JsonProcessingException e) {
+                // the converter reports it when it writes the body
+            }
+            serializeNanos = System.nanoTime() - start;
+        }
+        final long appNanos = Math.max(0, handledNanos - authNanos - dbNanos);
+        response.getHeaders().set(SERVER_TIMING_HEADER, entry("auth", authNanos, "token validation") + ", "
+                + entry("db", dbNanos, "SQL outside token validation") + ", " + entry("app", appNanos, "business logic") + ", "
+                + entry("serialize", serializeNanos, "JSON serialisation") + ", " + entry("total", handledNanos + serializeNanos, "total"));
+        return body;
+    }
+
+    // Durations of Server-Timing are in milliseconds
+    private static String entry(final String name, final long nanos, final String description) {
+        return String.format(Locale.ROOT, "%s;dur=%.3f;desc=\"%s\"", name, nanos / 1_000_000.0, description);
+    }
+}
@@ -0,0 +1,44 @@
+package com.upgrad.quora.api.config;
+
+import com.upgrad.quora.service.common.SqlStatistics;
+import com.upgrad.quora.service.dao.RequestSqlStatistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Sends the SQL work of a request, as counted by RequestTimingFilter, in the sql-statistics header when
+ * quora.request-timing.statistics-header is set. The header is added just before the body is written, after the
+ * transactions of the request have completed; endpoints which write their response themselves, such as the
+ * question export, do not get it.
+ */
+@ControllerAdvice
+public class SqlStatisticsHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String SQL_STATISTICS_HEADER = "sql-statistics";
+
+    @Value("${quora.request-timing.statistics-header:false}")
+    private boolean statisticsHeader;
+
+    @Override
+    public boolean supports(final MethodParameter returnType, final Class<? extends HttpMessageConverter<?>> converterType) {
+        return statisticsHeader;
+    }
+
+    @Override
+    public Object beforeBodyWrite(final Object body, final MethodParameter returnType, final MediaType selectedContentType,
+                                  final Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  final ServerHttpRequest request, final ServerHttpResponse response) {
+        final SqlStatistics sql = RequestSqlStatistics.current();
+        if (sql != null) {
+            response.getHeaders().set(SQL_STATISTICS_HEADER, "statements=" + sql.getStatements() + ";entity-loads=" + sql.getEntityLoads()
+                    + ";flushes=" + sql.getFlushes() + ";jdbc-us=" + sql.getJdbcMicros());
+        }
+        return body;
+    }
+}
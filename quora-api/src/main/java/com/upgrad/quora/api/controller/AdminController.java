@@ -1,7 +1,30 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.upgrad.quora.api.ApiHeaders;
+import com.upgrad.quora.api.model.AnswerExportResponse;
+import com.upgrad.quora.api.model.ConnectionCallerMetrics;
+import com.upgrad.quora.api.model.ConnectionPoolMetricsResponse;
+import com.upgrad.quora.api.model.EndpointMetricsResponse;
+import com.upgrad.quora.api.model.LatencyMetrics;
+import com.upgrad.quora.api.model.PasswordHashingMetricsResponse;
+import com.upgrad.quora.api.model.QuestionExportResponse;
+import com.upgrad.quora.api.model.SessionCacheMetricsResponse;
 import com.upgrad.quora.api.model.UserDeleteResponse;
 import com.upgrad.quora.service.business.AdminBusinessService;
+import com.upgrad.quora.service.business.RouteLatencyRecorder;
+import com.upgrad.quora.service.common.CacheStatistics;
+import com.upgrad.quora.service.common.ConnectionCallerStatistics;
+import com.upgrad.quora.service.common.ConnectionPoolStatistics;
+import com.upgrad.quora.service.common.LatencyStatistics;
+import com.upgrad.quora.service.common.RouteLatencyStatistics;
+import com.upgrad.quora.service.common.UnexpectedException;
+import com.upgrad.quora.service.common.WorkerPoolStatistics;
+import com.upgrad.quora.service.datasource.ConnectionPoolMonitor;
+import com.upgrad.quora.service.dto.QuestionExport;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +33,18 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
 @RestController
 @RequestMapping("/")
 public class AdminController {
@@ -17,6 +52,20 @@ public class AdminController {
     @Autowired
     private AdminBusinessService adminBusinessService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RouteLatencyRecorder routeLatencyRecorder;
+
+    @Autowired
+    private ConnectionPoolMonitor connectionPoolMonitor;
+
+    // Text format 0.0.4 which Prometheus scrapes
+    private static final String PROMETHEUS_TEXT_VALUE = "text/plain;version=0.0.4;charset=utf-8";
+
+    private static final double[] PROMETHEUS_QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
 
 
     /* This method is used to delete a user from db
@@ -40,4 +89,243 @@ public class AdminController {
         return new ResponseEntity<UserDeleteResponse>(deleteResponse, HttpStatus.OK);
     }
 
+    /* This method is used to read the counters of the access token session cache
+     * Note,Only the admin can read them
+     *
+     * @param authorization Holds the access token generated at the time of signin and is used for authentication
+     * @return hits, misses, evictions and current size of the session cache in the JSON response with the corresponding HTTP status.
+     * @throws AuthorizationFailedException if access token does not exit : if user has signed out : if non-admin tries to read
+     */
+
+    @RequestMapping(method = RequestMethod.GET, value = "/admin/metrics/session-cache", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<SessionCacheMetricsResponse> sessionCacheMetrics(@RequestHeader("authorization") final String authorization) throws AuthorizationFailedException {
+
+        final CacheStatistics statistics = adminBusinessService.getSessionCacheStatistics(authorization);
+
+        // Return response
+        SessionCacheMetricsResponse metricsResponse = new SessionCacheMetricsResponse().hits(statistics.getHits())
+                .misses(statistics.getMisses()).evictions(statistics.getEvictions()).size(statistics.getSize())
+                .maxSize(statistics.getMaxSize()).hitRatio(statistics.getHitRatio());
+        return new ResponseEntity<SessionCacheMetricsResponse>(metricsResponse, HttpStatus.OK);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/admin/metrics/password-hashing", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<PasswordHashingMetricsResponse> passwordHashingMetrics(@RequestHeader("authorization") final String authorization) throws AuthorizationFailedException {
+
+        final WorkerPoolStatistics statistics = adminBusinessService.getPasswordHashingStatistics(authorization);
+
+        // Return response
+        PasswordHashingMetricsResponse metricsResponse = new PasswordHashingMetricsResponse().poolSize(statistics.getPoolSize())
+                .activeCount(statistics.getActiveCount()).queueDepth(statistics.getQueueDepth())
+                .queueCapacity(statistics.getQueueCapacity()).completed(statistics.getCompleted())
+                .rejected(statistics.getRejected()).averageQueueWaitMicros(statistics.getAverageQueueWaitMicros())
+                .maxQueueWaitMicros(statistics.getMaxQueueWaitMicros())
+                .averageHashMicros(statistics.getAverageExecutionMicros()).maxHashMicros(statistics.getMaxExecutionMicros());
+        return new ResponseEntity<PasswordHashingMetricsResponse>(metricsResponse, HttpStatus.OK);
+    }
+
+    /* This method is used to read the gauges and timings of the database connection pools
+     * Note,Only the admin can read them
+     *
+     * @param authorization Holds the access token generated at the time of signin and is used for authentication
+     * @return per pool the active, idle and pending gauges, acquire and hold time percentiles, the callers which held
+     * connections and the connections held longer than the leak threshold, the primary first
+     * @throws AuthorizationFailedException if access token does not exit : if user has signed out : if non-admin tries to read
+     */
+
+    @RequestMapping(method = RequestMethod.GET, value = "/admin/metrics/connection-pools", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<List<ConnectionPoolMetricsResponse>> connectionPoolMetrics(@RequestHeader("authorization") final String authorization) throws AuthorizationFailedException {
+
+        final List<ConnectionPoolMetricsResponse> metricsResponses = new ArrayList<>();
+        for (ConnectionPoolStatistics statistics : adminBusinessService.getConnectionPoolStatistics(authorization)) {
+            final List<ConnectionCallerMetrics> callers = new ArrayList<>();
+            for (ConnectionCallerStatistics caller : statistics.getCallers()) {
+                callers.add(new ConnectionCallerMetrics().caller(caller.getCaller()).connections(caller.getConnections())
+                        .averageHoldMicros(caller.getAverageHoldMicros()).maxHoldMicros(caller.getMaxHoldMicros()).leaks(caller.getLeaks()));
+            }
+            metricsResponses.add(new ConnectionPoolMetricsResponse().name(statistics.getName())
+                    .activeConnections(statistics.getActiveConnections()).idleConnections(statistics.getIdleConnections())
+                    .pendingThreads(statistics.getPendingThreads()).totalConnections(statistics.getTotalConnections())
+                    .maximumPoolSize(statistics.getMaximumPoolSize()).acquireFailures(statistics.getAcquireFailures())
+                    .leaks(statistics.getLeaks()).acquireTime(latencyMetrics(statistics.getAcquireTime()))
+                    .holdTime(latencyMetrics(statistics.getHoldTime())).callers(callers));
+        }
+
+        // Return response
+        return new ResponseEntity<List<ConnectionPoolMetricsResponse>>(metricsResponses, HttpStatus.OK);
+    }
+
+    /* This method is used to read the number of requests and the latency of every route of the api, per response status
+     * Note,Only the admin can read them
+     *
+     * @param authorization Holds the access token generated at the time of signin and is used for authentication
+     * @return per route and status the requests since startup, the latency percentiles over the sliding window,
+     * corrected for coordinated omission if quora.request-timing.expected-interval-ms is set, and the SQL work per request in the JSON response with the corresponding HTTP status.
+     * @throws AuthorizationFailedException if access token does not exit : if user has signed out : if non-admin tries to read
+     */
+
+    @RequestMapping(method = RequestMethod.GET, value = "/admin/metrics/endpoints", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<List<EndpointMetricsResponse>> endpointMetrics(@RequestHeader("authorization") final String authorization) throws AuthorizationFailedException {
+
+        final List<EndpointMetricsResponse> metricsResponses = new ArrayList<>();
+        for (RouteLatencyStatistics statistics : adminBusinessService.getRouteLatencyStatistics(authorization)) {
+            metricsResponses.add(new EndpointMetricsResponse().route(statistics.getRoute()).status(statistics.getStatus())
+                    .requests(statistics.getRequests()).windowSeconds(statistics.getWindowSeconds())
+                    .window(latencyMetrics(statistics.getWindow())).averageStatements(statistics.getAverageStatements())
+                    .maxStatements(statistics.getMaxStatements()).averageEntityLoads(statistics.getAverageEntityLoads())
+                    .averageFlushes(statistics.getAverageFlushes()).averageJdbcMicros(statistics.getAverageJdbcMicros()));
+        }
+
+        // Return response
+        return new ResponseEntity<List<EndpointMetricsResponse>>(metricsResponses, HttpStatus.OK);
+    }
+
+    /* This method is used by Prometheus to scrape the endpoint latencies and the connection pool gauges in its text format
+     * Note,It takes no access token, so it only answers requests made on this host which no proxy forwarded
+     * Its error is returned as JSON, which is why the endpoint declares JSON first among the media types it produces.
+     *
+     * @throws AuthorizationFailedException if the request comes from another host or through a proxy
+     */
+
+    @RequestMapping(method = RequestMethod.GET, value = "/admin/metrics/prometheus", produces = {MediaType.APPLICATION_JSON_UTF8_VALUE, PROMETHEUS_TEXT_VALUE})
+    public void prometheusMetrics(final HttpServletRequest request, final HttpServletResponse response) throws AuthorizationFailedException, IOException {
+
+        if (!isLocalRequest(request)) {
+            throw new AuthorizationFailedException("ATHR-004", "Metrics can only be scraped from the local host");
+        }
+
+        final List<RouteLatencyStatistics> routes = routeLatencyRecorder.getStatistics();
+        final StringBuilder text = new StringBuilder();
+        text.append("# HELP quora_http_request_duration_seconds Latency of the api per route and status, quantiles over the sliding window\n");
+        text.append("# TYPE quora_http_request_duration_seconds summary\n");
+        for (RouteLatencyStatistics statistics : routes) {
+            final String labels = "route=\"" + escapeLabel(statistics.getRoute()) + "\",status=\"" + statistics.getStatus() + "\"";
+            for (double quantile : PROMETHEUS_QUANTILES) {
+                text.append("quora_http_request_duration_seconds{").append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(statistics.getWindow().getPercentileMicros(quantile * 100))).append('\n');
+            }
+            text.append("quora_http_request_duration_seconds_sum{").append(labels).append("} ").append(seconds(statistics.getTotalMicros())).append('\n');
+            text.append("quora_http_request_duration_seconds_count{").append(labels).append("} ").append(statistics.getRequests()).append('\n');
+        }
+        text.append("# HELP quora_http_request_duration_max_seconds Longest request per route and status over the sliding window\n");
+        text.append("# TYPE quora_http_request_duration_max_seconds gauge\n");
+        for (RouteLatencyStatistics statistics : routes) {
+            text.append("quora_http_request_duration_max_seconds{route=\"").append(escapeLabel(statistics.getRoute()))
+                    .append("\",status=\"").append(statistics.getStatus()).append("\"} ").append(seconds(statistics.getWindow().getMaxMicros())).append('\n');
+        }
+        appendRouteCounter(text, routes, "quora_http_request_sql_statements_total", "SQL statements executed by the requests per route and status",
+                statistics -> String.valueOf(statistics.getSql().getStatements()));
+        appendRouteCounter(text, routes, "quora_http_request_entity_loads_total", "Entities loaded by the requests per route and status",
+                statistics -> String.valueOf(statistics.getSql().getEntityLoads()));
+        appendRouteCounter(text, routes, "quora_http_request_flushes_total", "Hibernate flushes of the requests per route and status",
+                statistics -> String.valueOf(statistics.getSql().getFlushes()));
+        appendRouteCounter(text, routes, "quora_http_request_jdbc_seconds_total", "Time the requests spent executing SQL per route and status",
+                statistics -> String.valueOf(seconds(statistics.getSql().getJdbcMicros())));
+        final List<ConnectionPoolStatistics> pools = connectionPoolMonitor.getStatistics();
+        appendPoolGauge(text, pools, "quora_db_pool_active_connections", "gauge", "Connections in use", ConnectionPoolStatistics::getActiveConnections);
+        appendPoolGauge(text, pools, "quora_db_pool_idle_connections", "gauge", "Open connections not in use", ConnectionPoolStatistics::getIdleConnections);
+        appendPoolGauge(text, pools, "quora_db_pool_pending_threads", "gauge", "Threads waiting for a connection", ConnectionPoolStatistics::getPendingThreads);
+        appendPoolGauge(text, pools, "quora_db_pool_max_connections", "gauge", "Maximum pool size", ConnectionPoolStatistics::getMaximumPoolSize);
+        appendPoolGauge(text, pools, "quora_db_pool_acquire_failures_total", "counter", "Connection requests which timed out or failed", ConnectionPoolStatistics::getAcquireFailures);
+        appendPoolGauge(text, pools, "quora_db_pool_leaks_total", "counter", "Connections held longer than the leak threshold", ConnectionPoolStatistics::getLeaks);
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(PROMETHEUS_TEXT_VALUE);
+        response.getOutputStream().write(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The remote address of a request through a local reverse proxy is the loopback address too, so forwarded requests are refused
+    private static boolean isLocalRequest(final HttpServletRequest request) {
+        if (request.getHeader("X-Forwarded-For") != null || request.getHeader("Forwarded") != null) {
+            return false;
+        }
+        try {
+            return InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private static void appendRouteCounter(final StringBuilder text, final List<RouteLatencyStatistics> routes, final String name,
+                                           final String help, final Function<RouteLatencyStatistics, String> value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" counter\n");
+        for (RouteLatencyStatistics statistics : routes) {
+            text.append(name).append("{route=\"").append(escapeLabel(statistics.getRoute())).append("\",status=\"")
+                    .append(statistics.getStatus()).append("\"} ").append(value.apply(statistics)).append('\n');
+        }
+    }
+
+    private static void appendPoolGauge(final StringBuilder text, final List<ConnectionPoolStatistics> pools, final String name,
+                                        final String type, final String help, final ToLongFunction<ConnectionPoolStatistics> value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        for (ConnectionPoolStatistics pool : pools) {
+            text.append(name).append("{pool=\"").append(escapeLabel(pool.getName())).append("\"} ").append(value.applyAsLong(pool)).append('\n');
+        }
+    }
+
+    private static String escapeLabel(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static double seconds(final long micros) {
+        return micros / 1_000_000.0;
+    }
+
+    private static LatencyMetrics latencyMetrics(final LatencyStatistics statistics) {
+        return new LatencyMetrics().count(statistics.getCount()).averageMicros(statistics.getAverageMicros())
+                .p50Micros(statistics.getMedianMicros()).p90Micros(statistics.getP90Micros()).p99Micros(statistics.getP99Micros())
+                .p999Micros(statistics.getP999Micros()).maxMicros(statistics.getMaxMicros());
+    }
+
+    /* This method is used to export every question with all its answers, one question per line
+     * Note,Only the admin can export
+     * Every question is written as soon as it has been read, so memory use stays flat however many questions there are.
+     * Nothing is written before the access token and the since parameter have been validated, so their errors are returned as usual,
+     * which is why the endpoint declares JSON first among the media types it produces.
+     *
+     * @param authorization Holds the access token generated at the time of signin and is used for authentication
+     * @param since only questions posted at or after this ISO-8601 date and time are exported, all questions if it is absent
+     * @throws AuthorizationFailedException if access token does not exit : if user has signed out : if non-admin tries to export
+     */
+
+    @RequestMapping(method = RequestMethod.GET, value = "/admin/export/questions", produces = {MediaType.APPLICATION_JSON_UTF8_VALUE, ApiHeaders.NDJSON_VALUE})
+    public void exportQuestions(@RequestHeader("authorization") final String authorization,
+                                @RequestParam(value = "since", required = false) final String since,
+                                final HttpServletResponse response) throws AuthorizationFailedException, IOException {
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(ApiHeaders.NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        // The generator buffers its output, so nothing is sent if the token or since is rejected.
+        // The writer does not flush after every question, which would send each one in its own packet.
+        final JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.setRootValueSeparator(null);
+        final ObjectWriter writer = objectMapper.writerFor(QuestionExportResponse.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try {
+            adminBusinessService.exportQuestions(authorization, since, questionExport -> {
+                writer.writeValue(generator, exportResponse(questionExport));
+                generator.writeRaw('\n');
+            });
+        } catch (AuthorizationFailedException | UnexpectedException e) {
+            // Thrown before the first question, the NDJSON content type is dropped so the error can be written as JSON
+            response.reset();
+            throw e;
+        }
+        generator.close();
+    }
+
+    private static QuestionExportResponse exportResponse(final QuestionExport questionExport) {
+        QuestionExportResponse exportResponse = new QuestionExportResponse().id(questionExport.getUuid())
+                .content(questionExport.getContent()).date(questionExport.getDate().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME))
+                .userId(questionExport.getUserUuid()).answers(new ArrayList<>());
+        for (QuestionExport.Answer answer : questionExport.getAnswers()) {
+            exportResponse.addAnswersItem(new AnswerExportResponse().id(answer.getUuid()).answer(answer.getAnswer())
+                    .date(answer.getDate().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)).userId(answer.getUserUuid()));
+        }
+        return exportResponse;
+    }
+
 }
@@ -1,12 +1,17 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.ApiHeaders;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.AnswerBusinessService;
+import com.upgrad.quora.service.common.Page;
+import com.upgrad.quora.service.dto.AnswerSummary;
 import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.EditConflictException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -45,21 +50,23 @@ public class AnswerController {
         // Return response with created answer entity
         final AnswerEntity createdAnswerEntity = answerBusinessService.createAnswer(answerEntity, questionId, authorization);
         AnswerResponse answerResponse = new AnswerResponse().id(createdAnswerEntity.getUuid()).status("ANSWER CREATED");
-        return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.CREATED);
+        return new ResponseEntity<AnswerResponse>(answerResponse, ApiHeaders.versionHeaders(createdAnswerEntity.getVersion()), HttpStatus.CREATED);
     }
 
     @RequestMapping(method = RequestMethod.PUT, path = "/answer/edit/{answerId}", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<AnswerEditResponse> editAnswerContent(final AnswerEditRequest answerEditRequest, @PathVariable("answerId") final String answerId, @RequestHeader("authorization") final String authorization) throws AuthorizationFailedException, AnswerNotFoundException {
+    public ResponseEntity<AnswerEditResponse> editAnswerContent(final AnswerEditRequest answerEditRequest, @PathVariable("answerId") final String answerId, @RequestHeader("authorization") final String authorization,
+                                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch) throws AuthorizationFailedException, AnswerNotFoundException, EditConflictException {
 
-        // Created answer entity for further update
+        // Created answer entity for further update, with the version the edit depends on
         AnswerEntity answerEntity = new AnswerEntity();
         answerEntity.setAnswer(answerEditRequest.getContent());
         answerEntity.setUuid(answerId);
+        answerEntity.setVersion(ApiHeaders.ifMatchVersion(ifMatch));
 
         // Return response with updated answer entity
         AnswerEntity updatedAnswerEntity = answerBusinessService.editAnswerContent(answerEntity, authorization);
         AnswerEditResponse answerEditResponse = new AnswerEditResponse().id(updatedAnswerEntity.getUuid()).status("ANSWER EDITED");
-        return new ResponseEntity<AnswerEditResponse>(answerEditResponse, HttpStatus.OK);
+        return new ResponseEntity<AnswerEditResponse>(answerEditResponse, ApiHeaders.versionHeaders(updatedAnswerEntity.getVersion()), HttpStatus.OK);
     }
 
     @RequestMapping(method = RequestMethod.DELETE, path = "/answer/delete/{answerId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
@@ -75,10 +82,13 @@ public class AnswerController {
 
   
     @RequestMapping(method = RequestMethod.GET, path = "/answer/all/{questionId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<List<AnswerDetailsResponse>> getAllAnswersToQuestion (@PathVariable("questionId") final String questionId, @RequestHeader("authorization") final String authorization) throws AuthorizationFailedException, InvalidQuestionException {
+    public ResponseEntity<List<AnswerDetailsResponse>> getAllAnswersToQuestion (@PathVariable("questionId") final String questionId, @RequestHeader("authorization") final String authorization,
+                                                                                @RequestParam(value = "cursor", required = false) final String cursor,
+                                                                                @RequestParam(value = "limit", required = false) final Integer limit) throws AuthorizationFailedException, InvalidQuestionException {
 
-        // Get all answers for requested question
-        List<AnswerEntity> allAnswers = answerBusinessService.getAllAnswersToQuestion(questionId, authorization);
+        // Get one page of the answers for requested question
+        Page<AnswerSummary> page = answerBusinessService.getAllAnswersToQuestion(questionId, authorization, cursor, limit);
+        List<AnswerSummary> allAnswers = page.getItems();
 
         // Create response
         List<AnswerDetailsResponse> allAnswersResponse = new ArrayList<AnswerDetailsResponse>();
@@ -86,12 +96,13 @@ public class AnswerController {
         for (int i = 0; i < allAnswers.size(); i++) {
             AnswerDetailsResponse answerDetailsResponse = new AnswerDetailsResponse()
                     .answerContent(allAnswers.get(i).getAnswer())
-                    .questionContent(allAnswers.get(i).getQuestion().getContent())
-                    .id(allAnswers.get(i).getUuid());
+                    .questionContent(allAnswers.get(i).getQuestionContent())
+                    .id(allAnswers.get(i).getUuid())
+                    .version(allAnswers.get(i).getVersion());
             allAnswersResponse.add(answerDetailsResponse);
         }
 
         // Return response
-        return new ResponseEntity<List<AnswerDetailsResponse>>(allAnswersResponse, HttpStatus.FOUND);
+        return new ResponseEntity<List<AnswerDetailsResponse>>(allAnswersResponse, ApiHeaders.nextCursorHeaders(page), HttpStatus.FOUND);
     }
 }
@@ -1,22 +1,38 @@
 package com.upgrad.quora.api.controller;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.ApiHeaders;
 import com.upgrad.quora.api.model.*;
+import com.upgrad.quora.service.business.IdGenerator;
 import com.upgrad.quora.service.business.QuestionBusinessService;
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.Page;
+import com.upgrad.quora.service.common.UnexpectedException;
+import com.upgrad.quora.service.dto.QuestionImportResult;
+import com.upgrad.quora.service.dto.QuestionSummary;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.EditConflictException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/")
@@ -25,6 +41,12 @@ public class QuestionController {
     @Autowired
     private QuestionBusinessService questionBusinessService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
     /*
       This method is used to create a new question
      * @param questionRequest Contains all the attributes about the question
@@ -40,22 +62,59 @@ public class QuestionController {
         // Create question entity
         final QuestionEntity questionEntity = new QuestionEntity();
         questionEntity.setContent(questionRequest.getContent());
-        questionEntity.setUuid(UUID.randomUUID().toString());
+        questionEntity.setUuid(idGenerator.generate());
         questionEntity.setDate(ZonedDateTime.now());
 
         // Return response with created question entity
         final QuestionEntity createdQuestionEntity = questionBusinessService.createQuestion(questionEntity ,authorization);
         QuestionResponse questionResponse = new QuestionResponse().id(createdQuestionEntity.getUuid()).status("QUESTION CREATED");
-        return new ResponseEntity<QuestionResponse>(questionResponse, HttpStatus.CREATED);
+        return new ResponseEntity<QuestionResponse>(questionResponse, ApiHeaders.versionHeaders(createdQuestionEntity.getVersion()), HttpStatus.CREATED);
 
 
     }
 
+    /*
+      This method creates many questions for the signed in user in one request
+      The body is a JSON array of questions or NDJSON with one question per line, both are read by the same parser
+      while the body is received, so the whole body is never held in memory
+     * @param authorization access token for authenticating the user
+     * @return ResponseEntity with the result of every item and status
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "/question/import", consumes = {MediaType.APPLICATION_JSON_VALUE, ApiHeaders.NDJSON_VALUE}, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<QuestionImportResponse> importQuestions(@RequestHeader("authorization") final String authorization,
+                                                                  final HttpServletRequest request) throws AuthorizationFailedException, IOException {
+
+        // Import the questions while they are parsed
+        final MappingIterator<QuestionRequest> questionRequests = objectMapper.readerFor(QuestionRequest.class).readValues(request.getInputStream());
+        final List<QuestionImportResult> results = questionBusinessService.importQuestions(authorization, contents(questionRequests));
+
+        // Create response
+        QuestionImportResponse questionImportResponse = new QuestionImportResponse().created(0).rejected(0).results(new ArrayList<>());
+        for (QuestionImportResult result : results) {
+            if (result.isCreated()) {
+                questionImportResponse.created(questionImportResponse.getCreated() + 1);
+                questionImportResponse.addResultsItem(new QuestionImportItem()
+                        .index(result.getIndex()).id(result.getUuid()).status("QUESTION CREATED"));
+            } else {
+                questionImportResponse.rejected(questionImportResponse.getRejected() + 1);
+                questionImportResponse.addResultsItem(new QuestionImportItem()
+                        .index(result.getIndex()).status("QUESTION REJECTED").message(result.getError()));
+            }
+        }
+
+        // Return response
+        return new ResponseEntity<QuestionImportResponse>(questionImportResponse, HttpStatus.OK);
+    }
+
     @RequestMapping(method = RequestMethod.GET, path = "/question/all", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions(@RequestHeader("authorization") final String authorization) throws AuthorizationFailedException {
+    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions(@RequestHeader("authorization") final String authorization,
+                                                                         @RequestParam(value = "cursor", required = false) final String cursor,
+                                                                         @RequestParam(value = "limit", required = false) final Integer limit) throws AuthorizationFailedException {
 
-        // Get all questions
-        List<QuestionEntity> allQuestions = questionBusinessService.getAllQuestions(authorization);
+        // Get one page of all questions
+        Page<QuestionSummary> page = questionBusinessService.getAllQuestions(authorization, cursor, limit);
+        List<QuestionSummary> allQuestions = page.getItems();
 
         // Create response
         List<QuestionDetailsResponse> allQuestionDetailsResponses = new ArrayList<QuestionDetailsResponse>();
@@ -63,26 +122,50 @@ public class QuestionController {
         for (int i = 0; i < allQuestions.size(); i++) {
             QuestionDetailsResponse questionDetailsResponse = new QuestionDetailsResponse()
                     .content(allQuestions.get(i).getContent())
-                    .id(allQuestions.get(i).getUuid());
+                    .id(allQuestions.get(i).getUuid())
+                    .version(allQuestions.get(i).getVersion());
             allQuestionDetailsResponses.add(questionDetailsResponse);
         }
 
         // Return response
-        return new ResponseEntity<List<QuestionDetailsResponse>>(allQuestionDetailsResponses, HttpStatus.OK);
+        return new ResponseEntity<List<QuestionDetailsResponse>>(allQuestionDetailsResponses, ApiHeaders.nextCursorHeaders(page), HttpStatus.OK);
+    }
+
+    /*
+      This method writes every question straight to the response while the questions are read from the database,
+      so memory use stays flat however many questions there are. It is selected with the stream=true parameter.
+      Nothing is written before the access token has been validated, so authorization errors are returned as usual.
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/question/all", params = "stream=true", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public void streamAllQuestions(@RequestHeader("authorization") final String authorization, final HttpServletResponse response) throws AuthorizationFailedException, IOException {
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+
+        // The generator buffers its output, so the start of the array is not sent if the token is rejected
+        final JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.writeStartArray();
+        questionBusinessService.streamAllQuestions(authorization, questionSummary -> generator.writeObject(
+                new QuestionDetailsResponse().id(questionSummary.getUuid()).content(questionSummary.getContent())
+                        .version(questionSummary.getVersion())));
+        generator.writeEndArray();
+        generator.close();
     }
 
     @RequestMapping(method = RequestMethod.PUT, path = "/question/edit/{questionId}", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<QuestionEditResponse> editQuestionContent(final QuestionEditRequest questionEditRequest, @PathVariable("questionId") final String questionId, @RequestHeader("authorization") final String authorization) throws AuthorizationFailedException, InvalidQuestionException {
+    public ResponseEntity<QuestionEditResponse> editQuestionContent(final QuestionEditRequest questionEditRequest, @PathVariable("questionId") final String questionId, @RequestHeader("authorization") final String authorization,
+                                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch) throws AuthorizationFailedException, InvalidQuestionException, EditConflictException {
 
-        // Creating question entity for further update
+        // Creating question entity for further update, with the version the edit depends on
         QuestionEntity questionEntity = new QuestionEntity();
         questionEntity.setContent(questionEditRequest.getContent());
         questionEntity.setUuid(questionId);
+        questionEntity.setVersion(ApiHeaders.ifMatchVersion(ifMatch));
 
         // Return response with updated question entity
         QuestionEntity updatedQuestionEntity = questionBusinessService.editQuestionContent(questionEntity, authorization);
         QuestionEditResponse questionEditResponse = new QuestionEditResponse().id(updatedQuestionEntity.getUuid()).status("QUESTION EDITED");
-        return new ResponseEntity<QuestionEditResponse>(questionEditResponse, HttpStatus.OK);
+        return new ResponseEntity<QuestionEditResponse>(questionEditResponse, ApiHeaders.versionHeaders(updatedQuestionEntity.getVersion()), HttpStatus.OK);
     }
 
     @RequestMapping(method = RequestMethod.DELETE, path = "/question/delete/{questionId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
@@ -98,10 +181,13 @@ public class QuestionController {
 
 
     @RequestMapping(method = RequestMethod.GET, path ="/question/all/{userId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestionsByUser(@PathVariable("userId") final String userId, @RequestHeader("authorization") final String authorization) throws AuthorizationFailedException, UserNotFoundException {
+    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestionsByUser(@PathVariable("userId") final String userId, @RequestHeader("authorization") final String authorization,
+                                                                               @RequestParam(value = "cursor", required = false) final String cursor,
+                                                                               @RequestParam(value = "limit", required = false) final Integer limit) throws AuthorizationFailedException, UserNotFoundException {
 
-        // Get all questions for requested user
-        List<QuestionEntity> allQuestions = questionBusinessService.getAllQuestionsByUser(userId, authorization);
+        // Get one page of the questions for requested user
+        Page<QuestionSummary> page = questionBusinessService.getAllQuestionsByUser(userId, authorization, cursor, limit);
+        List<QuestionSummary> allQuestions = page.getItems();
 
         // Create response
         List<QuestionDetailsResponse> allQuestionDetailsResponse = new ArrayList<QuestionDetailsResponse>();
@@ -109,12 +195,42 @@ public class QuestionController {
         for (int i = 0; i < allQuestions.size(); i++) {
             QuestionDetailsResponse questionDetailsResponse = new QuestionDetailsResponse()
                     .content(allQuestions.get(i).getContent())
-                    .id(allQuestions.get(i).getUuid());
+                    .id(allQuestions.get(i).getUuid())
+                    .version(allQuestions.get(i).getVersion());
             allQuestionDetailsResponse.add(questionDetailsResponse);
         }
 
         // Return response
-        return new ResponseEntity<List<QuestionDetailsResponse>>(allQuestionDetailsResponse, HttpStatus.FOUND);
+        return new ResponseEntity<List<QuestionDetailsResponse>>(allQuestionDetailsResponse, ApiHeaders.nextCursorHeaders(page), HttpStatus.FOUND);
+    }
+
+    // Contents of the parsed questions, a body which cannot be parsed fails the import with GEN-004
+    private static Iterator<String> contents(final MappingIterator<QuestionRequest> questionRequests) {
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return questionRequests.hasNextValue();
+                } catch (IOException e) {
+                    throw invalidImport(e);
+                }
+            }
+
+            @Override
+            public String next() {
+                try {
+                    final QuestionRequest questionRequest = questionRequests.nextValue();
+                    return questionRequest == null ? null : questionRequest.getContent();
+                } catch (IOException e) {
+                    throw invalidImport(e);
+                }
+            }
+        };
+    }
+
+    private static UnexpectedException invalidImport(final IOException e) {
+        final String detail = e instanceof JsonProcessingException ? ((JsonProcessingException) e).getOriginalMessage() : e.getMessage();
+        return new UnexpectedException(GenericErrorCode.GEN_004, e, detail);
     }
 
 
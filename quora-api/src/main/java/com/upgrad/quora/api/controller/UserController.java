@@ -5,6 +5,7 @@ import com.upgrad.quora.api.model.SignoutResponse;
 import com.upgrad.quora.api.model.SignupUserRequest;
 import com.upgrad.quora.api.model.SignupUserResponse;
 import com.upgrad.quora.service.business.AuthenticationService;
+import com.upgrad.quora.service.business.IdGenerator;
 import com.upgrad.quora.service.business.UserBusinessService;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
@@ -21,8 +22,6 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.UUID;
-
 @RestController
 @RequestMapping("/")
 public class UserController {
@@ -33,6 +32,9 @@ public class UserController {
     @Autowired
     private AuthenticationService authenticationService;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
     /*
     This api end point is used to register  a new user
     @Param signUp user request details from SignupUserRequest model
@@ -47,7 +49,7 @@ public class UserController {
         final UserEntity userEntity = new UserEntity();
 
         //setting  values  to user entity object
-        userEntity.setUuid(UUID.randomUUID().toString());
+        userEntity.setUuid(idGenerator.generate());
         userEntity.setFirstName(signupUserRequest.getFirstName());
         userEntity.setLastName(signupUserRequest.getLastName());
         userEntity.setEmail(signupUserRequest.getEmailAddress());
@@ -2,6 +2,8 @@ package com.upgrad.quora.api.exception;
 
 
 import com.upgrad.quora.api.model.ErrorResponse;
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.UnexpectedException;
 import com.upgrad.quora.service.exception.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -60,5 +62,31 @@ public class RestExceptionHandler {
         );
     }
 
+    @ExceptionHandler(EditConflictException.class)
+    public ResponseEntity<ErrorResponse> editConflictException(EditConflictException exe, WebRequest request) {
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()), HttpStatus.CONFLICT
+        );
+    }
+
+    @ExceptionHandler(UnexpectedException.class)
+    public ResponseEntity<ErrorResponse> unexpectedException(UnexpectedException exe, WebRequest request) {
+        // A full worker pool is a temporary condition, so the client is told to retry rather than given a 500
+        final HttpStatus status;
+        if (exe.getErrorCode() == GenericErrorCode.GEN_002) {
+            status = HttpStatus.SERVICE_UNAVAILABLE;
+        } else if (exe.getErrorCode() == GenericErrorCode.GEN_003 || exe.getErrorCode() == GenericErrorCode.GEN_004
+                || exe.getErrorCode() == GenericErrorCode.GEN_006) {
+            status = HttpStatus.BAD_REQUEST;
+        } else if (exe.getErrorCode() == GenericErrorCode.GEN_005) {
+            status = HttpStatus.PAYLOAD_TOO_LARGE;
+        } else {
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code(exe.getErrorCode().getCode()).message(exe.getMessage()), status
+        );
+    }
+
 
 }
@@ -0,0 +1,34 @@
+package com.upgrad.quora.api.filter;
+
+import com.upgrad.quora.service.datasource.ReadYourWritesTracker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Identifies the client of a request by its authorization header, so that a client which just wrote
+ * reads from the primary database instead of a replica which may not have its write yet.
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response, final FilterChain filterChain)
+            throws ServletException, IOException {
+        readYourWritesTracker.setClient(request.getHeader("authorization"));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            readYourWritesTracker.clearClient();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.upgrad.quora.api.filter;
+
+import com.upgrad.quora.service.business.RouteLatencyRecorder;
+import com.upgrad.quora.service.common.SqlStatistics;
+import com.upgrad.quora.service.dao.RequestSqlStatistics;
+import com.upgrad.quora.service.dao.RequestTiming;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Times every request, from the first filter to the last byte handed to the container, and records it under the
+ * path pattern of the controller method which handled it, so that "/question/edit/{questionId}" is one route
+ * whatever the id. Requests no controller method was mapped to, which fall through to the static resource
+ * handler, are recorded together as UNMATCHED so that scanning random paths cannot add routes.
+ * The SQL work Hibernate does for the request is counted alongside, and every request is logged with it at debug level.
+ * A request with the debug-timing header also has its token validation timed, for the Server-Timing header which
+ * ServerTimingHeaderAdvice sends to admins. There is no setting for it: requests without the header are not timed.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    static final String UNMATCHED_ROUTE = "UNMATCHED";
+
+    public static final String DEBUG_TIMING_HEADER = "debug-timing";
+
+    // pattern of the static resource handler, which takes every path no controller method matches
+    private static final String FALLBACK_PATTERN = "/**";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestTimingFilter.class);
+
+    @Autowired
+    private RouteLatencyRecorder routeLatencyRecorder;
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response, final FilterChain filterChain)
+            throws ServletException, IOException {
+        final long start = System.nanoTime();
+        RequestSqlStatistics.begin();
+        final boolean debugTiming = request.getHeader(DEBUG_TIMING_HEADER) != null;
+        if (debugTiming) {
+            RequestTiming.begin(start);
+        }
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            final String route = pattern == null || FALLBACK_PATTERN.equals(pattern) ? UNMATCHED_ROUTE : request.getMethod() + " " + pattern;
+            // an exception which escaped the filters becomes an error page with this status
+            final int status = failed ? HttpStatus.INTERNAL_SERVER_ERROR.value() : response.getStatus();
+            final long nanos = System.nanoTime() - start;
+            final SqlStatistics sql = RequestSqlStatistics.end();
+            if (debugTiming) {
+                RequestTiming.end();
+            }
+            routeLatencyRecorder.record(route, status, nanos, sql);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("{} {} {} in {} µs: {} statements taking {} µs, {} entity loads, {} flushes", request.getMethod(),
+                        request.getRequestURI(), status, nanos / 1000, sql.getStatements(), sql.getJdbcMicros(), sql.getEntityLoads(), sql.getFlushes());
+            }
+        }
+    }
+}
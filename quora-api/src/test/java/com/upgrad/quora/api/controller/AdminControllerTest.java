@@ -1,6 +1,8 @@
 package com.upgrad.quora.api.controller;
 
 
+import com.upgrad.quora.service.entity.UuidAttributeConverter;
+import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,5 +50,168 @@ public class AdminControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
 
+    //This test case passes when you try to read the session cache metrics and the user corresponding to the JWT token entered is an admin.
+    @Test
+    public void sessionCacheMetrics() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/admin/metrics/session-cache").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("maxSize").exists());
+    }
+
+    //This test case passes when you try to read the session cache metrics but the role of the user corresponding to the JWT token entered is nonadmin.
+    @Test
+    public void sessionCacheMetricsWithnonadminAsRole() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/admin/metrics/session-cache").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+    }
+
+    //This test case passes when you try to read the password hashing pool metrics as an admin.
+    @Test
+    public void passwordHashingMetrics() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/admin/metrics/password-hashing").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("poolSize").exists())
+                .andExpect(MockMvcResultMatchers.jsonPath("rejected").exists());
+    }
+
+    //This test case passes when you try to read the password hashing pool metrics but the role of the user corresponding to the JWT token entered is nonadmin.
+    @Test
+    public void passwordHashingMetricsWithnonadminAsRole() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/admin/metrics/password-hashing").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+    }
+
+    //This test case passes when you try to read the connection pool metrics as an admin after a read, which is listed under the service method that took its connection.
+    @Test
+    public void connectionPoolMetrics() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/admin/metrics/connection-pools").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value("primary"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].maximumPoolSize").value(10))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].acquireTime.p99Micros").exists())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].callers[*].caller").value(Matchers.hasItem("QuestionBusinessService.getAllQuestions")));
+    }
+
+    //This test case passes when you try to read the connection pool metrics but the role of the user corresponding to the JWT token entered is nonadmin.
+    @Test
+    public void connectionPoolMetricsWithnonadminAsRole() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/admin/metrics/connection-pools").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+    }
+
+    //This test case passes when you try to read the endpoint metrics as an admin after a read, which is recorded under its route pattern and status.
+    @Test
+    public void endpointMetrics() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken1"));
+        mvc.perform(MockMvcRequestBuilders.get("/admin/metrics/endpoints").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.route == 'GET /userprofile/{userId}')].window.p999Micros").isNotEmpty())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.route == 'GET /userprofile/{userId}' && @.maxStatements > 0)].averageStatements").isNotEmpty());
+    }
+
+    //This test case passes when a request to a path no endpoint has is recorded as UNMATCHED instead of under its own path.
+    @Test
+    public void endpointMetricsOfUnmatchedPath() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/no/such/endpoint").header("authorization", "database_accesstoken1"));
+        mvc.perform(MockMvcRequestBuilders.get("/admin/metrics/endpoints").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.route == 'UNMATCHED' && @.status == 404)]").isNotEmpty())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.route =~ /.*no.such.*/)]").isEmpty());
+    }
+
+    //This test case passes when you try to read the endpoint metrics but the role of the user corresponding to the JWT token entered is nonadmin.
+    @Test
+    public void endpointMetricsWithnonadminAsRole() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/admin/metrics/endpoints").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+    }
+
+    //This test case passes when Prometheus scrapes the metrics from the local host, no access token is needed.
+    @Test
+    public void prometheusMetrics() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken1"));
+        mvc.perform(MockMvcRequestBuilders.get("/admin/metrics/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.containsString("quora_http_request_duration_seconds{route=\"GET /userprofile/{userId}\"")))
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.containsString("quora_db_pool_max_connections{pool=\"primary\"} 10")));
+    }
+
+    //This test case passes when you try to scrape the metrics from another host.
+    @Test
+    public void prometheusMetricsFromRemoteHost() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/admin/metrics/prometheus").with(request -> {
+            request.setRemoteAddr("192.0.2.10");
+            return request;
+        }))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-004"));
+    }
+
+    //This test case passes when you try to scrape the metrics through a proxy on the local host.
+    @Test
+    public void prometheusMetricsThroughProxy() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/admin/metrics/prometheus").header("X-Forwarded-For", "192.0.2.10"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-004"));
+    }
+
+    //This test case passes when you try to export the questions as admin and every question is written on its own line with its answers.
+    @Test
+    public void exportQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/admin/export/questions").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.containsString("{\"id\":\"" + UuidAttributeConverter.canonical("database_question_uuid")
+                        + "\",\"content\":\"database_question_content\"")))
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.containsString("\"answers\":[{\"id\":\"" + UuidAttributeConverter.canonical("database_answer_uuid") + "\"")));
+    }
+
+    //This test case passes when you try to export the questions posted after the last question, the export is then empty.
+    @Test
+    public void exportQuestionsSince() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/admin/export/questions?since=2100-01-01T00:00:00Z").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+    }
+
+    //This test case passes when you try to export the questions with a since parameter which is not an ISO-8601 date and time.
+    @Test
+    public void exportQuestionsWithInvalidSince() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/admin/export/questions?since=yesterday").header("authorization", "database_accesstoken"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("GEN-006"));
+    }
+
+    //This test case passes when you try to export the questions but the role of the user corresponding to the JWT token entered is nonadmin.
+    @Test
+    public void exportQuestionsWithnonadminAsRole() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/admin/export/questions").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+    }
+
+    //This test case passes when an admin asks for the timing of a request with the debug-timing header and gets its Server-Timing breakdown.
+    @Test
+    public void serverTimingForAdmin() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken").header("debug-timing", "true"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("Server-Timing", Matchers.allOf(Matchers.containsString("auth;dur="),
+                        Matchers.containsString("db;dur="), Matchers.containsString("app;dur="), Matchers.containsString("serialize;dur="),
+                        Matchers.containsString("total;dur="))));
+    }
+
+    //This test case passes when a nonadmin asks for the timing of a request with the debug-timing header and gets no Server-Timing header.
+    @Test
+    public void serverTimingWithnonadminAsRole() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken1").header("debug-timing", "true"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("Server-Timing"));
+    }
 
-}
\ No newline at end of file
+}
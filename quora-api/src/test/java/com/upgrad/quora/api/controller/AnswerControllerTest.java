@@ -1,5 +1,7 @@
 package com.upgrad.quora.api.controller;
 
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.service.entity.UuidAttributeConverter;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -80,6 +82,22 @@ public class AnswerControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
     }
 
+    //This test case passes when the owner edits an answer with the ETag of its current version and then with a weak ETag, which never matches.
+    @Test
+    public void editAnswerWithStaleVersion() throws Exception {
+        final String answerId = JsonPath.read(mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=answer_to_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2"))
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"0\"")).andReturn().getResponse().getContentAsString(), "$.id");
+
+        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/" + answerId + "?content=first_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2").header("If-Match", "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1\""));
+
+        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/" + answerId + "?content=second_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2").header("If-Match", "W/\"1\""))
+                .andExpect(status().isConflict())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ANS-002"));
+    }
+
     //This test case passes when you try to delete the answer but the JWT token entered does not exist in the database.
     @Test
     public void deleteAnswerWithNonExistingAccessToken() throws Exception {
@@ -128,6 +146,17 @@ public class AnswerControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
 
+    //This test case passes when you try to get one page of the answers posted for a specific question and there is no further page, with the version to send in If-Match.
+    @Test
+    public void getAllAnswersToQuestionWithLimit() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid?limit=1").header("authorization", "database_accesstoken"))
+                .andExpect(status().isFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(UuidAttributeConverter.canonical("database_answer_uuid")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].version").value(0))
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("next-cursor"));
+    }
+
     //This test case passes when you try to get all the answers posted for a specific question which does not exist in the database.
     @Test
     public void getAllAnswersToNonExistingQuestion() throws Exception {
@@ -1,5 +1,7 @@
 package com.upgrad.quora.api.controller;
 
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.service.entity.UuidAttributeConverter;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -40,6 +42,37 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
 
+    //This test case passes when you try to import questions as NDJSON and every item gets its own result, the one without content is rejected.
+    @Test
+    public void importQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/import").contentType("application/x-ndjson").header("authorization", "database_accesstoken2")
+                .content("{\"content\":\"imported_question_1\"}\n{\"content\":\"\"}\n{\"content\":\"imported_question_2\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("created").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("rejected").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("results[0].status").value("QUESTION CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("results[1].status").value("QUESTION REJECTED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("results[2].index").value(2));
+    }
+
+    //This test case passes when you try to import questions but the user corresponding to the JWT token entered is signed out of the application.
+    @Test
+    public void importQuestionsWithSignedOutUser() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/import").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3")
+                .content("[{\"content\":\"imported_question\"}]"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
+    //This test case passes when you try to import questions but the body is not valid JSON.
+    @Test
+    public void importQuestionsWithMalformedBody() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/import").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2")
+                .content("[{\"content\":\"imported_question\"},{\"content\""))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("GEN-004"));
+    }
+
     //This test case passes when you try to get the detail of all the questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
     @Test
     public void getAllQuestions() throws Exception {
@@ -63,6 +96,30 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
 
+    //This test case passes when you try to stream the detail of all the questions and the user corresponding to the JWT token entered is signed in.
+    @Test
+    public void streamAllQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?stream=true").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == '" + UuidAttributeConverter.canonical("database_question_uuid") + "')].content").value("database_question_content"));
+    }
+
+    //This test case passes when you try to stream the detail of all the questions but the user corresponding to the JWT token entered is signed out.
+    @Test
+    public void streamAllQuestionsWithSignedOutUser() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?stream=true").header("authorization", "database_accesstoken3"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
+    //This test case passes when you try to get the detail of all the questions with a page cursor which was not issued by the application.
+    @Test
+    public void getAllQuestionsWithInvalidCursor() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?cursor=not_a_cursor").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("GEN-003"));
+    }
+
     //This test case passes when you try to edit the question but the JWT token entered does not exist in the database.
     @Test
     public void editQuestionWithNonExistingAccessToken() throws Exception {
@@ -95,6 +152,34 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
     }
 
+    //This test case passes when the owner edits a question with the ETag of its current version and then again with the stale ETag.
+    @Test
+    public void editQuestionWithStaleVersion() throws Exception {
+        final String questionId = JsonPath.read(mvc.perform(MockMvcRequestBuilders.post("/question/create?content=question_to_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2"))
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"0\"")).andReturn().getResponse().getContentAsString(), "$.id");
+
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + questionId + "?content=first_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2").header("If-Match", "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1\""));
+
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + questionId + "?content=second_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2").header("If-Match", "\"0\""))
+                .andExpect(status().isConflict())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-002"));
+
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + questionId + "?content=third_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"2\""));
+    }
+
+    //This test case passes when you try to edit the question of another user with the ETag of its current version.
+    @Test
+    public void editQuestionWithoutOwnershipWithVersion() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken").header("If-Match", "\"0\""))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+    }
+
     //This test case passes when you try to delete the question but the JWT token entered does not exist in the database.
     @Test
     public void deleteQuestionWithNonExistingAccessToken() throws Exception {
@@ -120,6 +205,23 @@ public class QuestionControllerTest {
     }
 
 
+    //This test case passes when you delete your own question, after which it can no longer be found even through the cached uuid lookup.
+    @Test
+    public void deleteOwnQuestion() throws Exception {
+        final String questionId = JsonPath.read(mvc.perform(MockMvcRequestBuilders.post("/question/create?content=question_to_delete").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2"))
+                .andExpect(status().isCreated()).andReturn().getResponse().getContentAsString(), "$.id");
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken2"))
+                .andExpect(status().isFound());
+
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + questionId).header("authorization", "database_accesstoken2"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("status").value("QUESTION DELETED"));
+
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken2"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+
     //This test case passes when you try to delete the question which does not exist in the database.
     @Test
     public void deleteNoneExistingQuestion() throws Exception {
@@ -144,6 +246,17 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
 
+    //This test case passes when you try to get one page of the questions posted by a specific user and there is no further page, with the version to send in If-Match.
+    @Test
+    public void getAllQuestionsByUserWithLimit() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(UuidAttributeConverter.canonical("database_question_uuid")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].version").value(0))
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("next-cursor"));
+    }
+
     //This test case passes when you try to get all the questions posted by a specific user which does not exist in the database.
     @Test
     public void getAllQuestionsForNonExistingUser() throws Exception {
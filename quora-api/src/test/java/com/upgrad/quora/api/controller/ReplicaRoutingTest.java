@@ -0,0 +1,138 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.service.common.ConnectionCallerStatistics;
+import com.upgrad.quora.service.datasource.InstrumentedDataSource;
+import com.upgrad.quora.service.datasource.Replica;
+import com.upgrad.quora.service.datasource.ReplicaRoutingDataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Routes reads to two replicas: the test database itself under another application name, which stands in for a
+ * standby with no lag, and a port nothing listens on, which must never get a read.
+ * The pool which served a transaction is told by the connections its pool counted for the business method.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "quora.datasource.replica-urls=jdbc:postgresql://localhost:5432/quora?ApplicationName=quora-replica,jdbc:postgresql://localhost:1/quora",
+        "quora.datasource.read-your-writes-ms=60000",
+        "quora.bulk-import.batch-size=1",
+        "quora.bulk-import.max-items=2"})
+@AutoConfigureMockMvc
+
+public class ReplicaRoutingTest {
+
+    private static final String GET_ALL_QUESTIONS = "QuestionBusinessService.getAllQuestions";
+
+    private static final String IS_ADMIN = "AdminBusinessService.isAdmin";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ReplicaRoutingDataSource dataSource;
+
+    private Replica replica;
+
+    @Before
+    public void setUp() {
+        dataSource.checkReplicas();
+        replica = dataSource.getReplicas().get(0);
+    }
+
+    //This test case passes when the replica which answers is in the rotation and the one which does not is out of it.
+    @Test
+    public void checkReplicas() {
+        assertTrue(replica.isHealthy());
+        assertEquals(0, replica.getLagMillis());
+        assertFalse(dataSource.getReplicas().get(1).isHealthy());
+        assertEquals(-1, dataSource.getReplicas().get(1).getLagMillis());
+    }
+
+    //This test case passes when a read-only request of a client which has not written is served by the pool of the replica.
+    @Test
+    public void readFromReplica() throws Exception {
+        final long replicaReads = connections(replica.getDataSource(), GET_ALL_QUESTIONS);
+        final long primaryReads = connections(dataSource.getPrimary(), GET_ALL_QUESTIONS);
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        assertEquals(replicaReads + 1, connections(replica.getDataSource(), GET_ALL_QUESTIONS));
+        assertEquals(primaryReads, connections(dataSource.getPrimary(), GET_ALL_QUESTIONS));
+    }
+
+    //This test case passes when the reads of a client which just wrote stay on the primary, while other clients still read from the replica.
+    @Test
+    public void readYourWritesFromPrimary() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/create?content=replica_routing_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2"))
+                .andExpect(status().isCreated());
+
+        final long replicaReads = connections(replica.getDataSource(), GET_ALL_QUESTIONS);
+        final long primaryReads = connections(dataSource.getPrimary(), GET_ALL_QUESTIONS);
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken2"))
+                .andExpect(status().isOk());
+        assertEquals(replicaReads, connections(replica.getDataSource(), GET_ALL_QUESTIONS));
+        assertEquals(primaryReads + 1, connections(dataSource.getPrimary(), GET_ALL_QUESTIONS));
+
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        assertEquals(replicaReads + 1, connections(replica.getDataSource(), GET_ALL_QUESTIONS));
+        assertEquals(primaryReads + 1, connections(dataSource.getPrimary(), GET_ALL_QUESTIONS));
+    }
+
+    //This test case passes when a read-write request which fails its authorization and so writes nothing leaves the reads of its client on the replica.
+    @Test
+    public void failedAuthorizationDoesNotHoldReadsOnPrimary() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/database_uuid4").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isForbidden());
+
+        final long replicaReads = connections(replica.getDataSource(), GET_ALL_QUESTIONS);
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        assertEquals(replicaReads + 1, connections(replica.getDataSource(), GET_ALL_QUESTIONS));
+    }
+
+    //This test case passes when a request whose inserts are rolled back, an import over quora.bulk-import.max-items, leaves the reads of its client on the replica.
+    @Test
+    public void rollbackDoesNotHoldReadsOnPrimary() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/import").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken")
+                .content("[{\"content\":\"rolled_back_1\"},{\"content\":\"rolled_back_2\"},{\"content\":\"rolled_back_3\"}]"))
+                .andExpect(status().isPayloadTooLarge());
+
+        final long replicaReads = connections(replica.getDataSource(), GET_ALL_QUESTIONS);
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+        assertEquals(replicaReads + 1, connections(replica.getDataSource(), GET_ALL_QUESTIONS));
+    }
+
+    //This test case passes when both read-only transactions of one request, the questions and the admin check of the
+    //Server-Timing header, take their own connection from the replica instead of the second reusing the first.
+    @Test
+    public void everyTransactionOfARequestIsRouted() throws Exception {
+        final long questionReads = connections(replica.getDataSource(), GET_ALL_QUESTIONS);
+        final long adminChecks = connections(replica.getDataSource(), IS_ADMIN);
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken").header("debug-timing", "true"))
+                .andExpect(status().isOk());
+        assertEquals(questionReads + 1, connections(replica.getDataSource(), GET_ALL_QUESTIONS));
+        assertEquals(adminChecks + 1, connections(replica.getDataSource(), IS_ADMIN));
+    }
+
+    // Connections the pool handed to the transactions of the business method and got back
+    private static long connections(final InstrumentedDataSource pool, final String caller) {
+        return pool.getStatistics().getCallers().stream().filter(statistics -> caller.equals(statistics.getCaller()))
+                .mapToLong(ConnectionCallerStatistics::getConnections).sum();
+    }
+}
@@ -0,0 +1,63 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.service.entity.UuidAttributeConverter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.rule.OutputCapture;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Logs every statement as slow, so that each one shows up with its named query, caller and bind values.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"quora.datasource.slow-query.threshold-ms=0", "quora.datasource.slow-query.log-bind-values=true"})
+@AutoConfigureMockMvc
+
+public class SlowQueryLogTest {
+
+    @Rule
+    public OutputCapture output = new OutputCapture();
+
+    @Autowired
+    private MockMvc mvc;
+
+    //The token lookup is logged under its named query, with the business method of its transaction and the digest it looked up masked.
+    @Test
+    public void slowQueryIsLoggedWithNamedQueryAndCaller() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        output.expect(allOf(containsString("Slow query userSessionByAccessToken took"), containsString("called by QuestionBusinessService.getAllQuestions"),
+                containsString("binds [1=****]"), not(containsString("binds [1=\\x"))));
+    }
+
+    //The questions of a user are logged with the uuid of the user they were read for.
+    @Test
+    public void slowQueryIsLoggedWithBindValues() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isFound());
+        output.expect(allOf(containsString("Slow query questionSummariesByUserId took"),
+                containsString("binds [1=" + UuidAttributeConverter.canonical("database_uuid1"))));
+    }
+
+    //The new user is logged with its username, but without its password, salt, email or contact number.
+    @Test
+    public void slowQueryMasksSensitiveBindValues() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=slow_query_username&emailAddress=slow_query_email&password=slow_query_password&country=a&aboutMe=a&dob=a&contactNumber=slow_query_contact").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated());
+        output.expect(allOf(containsString("slow_query_username"), not(containsString("slow_query_email")),
+                not(containsString("slow_query_password")), not(containsString("slow_query_contact"))));
+    }
+}
@@ -0,0 +1,159 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts how many SQL statements each read endpoint and each ownership check issues,
+ * so that an association which starts loading row by row again fails the build.
+ * The test access tokens have expired, so the session cache never serves them and every request looks its token up.
+ * The second-level cache is cleared before every test, so the counts are those of a cold cache.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true", "quora.request-timing.statistics-header=true"})
+@AutoConfigureMockMvc
+
+public class StatementCountTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        final SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+    }
+
+    //Token lookup and the page of questions.
+    @Test
+    public void getAllQuestions() throws Exception {
+        assertStatementCount(2, MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"), status().isOk());
+    }
+
+    //The statements of a request are counted for it alone and reported in its sql-statistics header.
+    @Test
+    public void sqlStatisticsHeader() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("sql-statistics", startsWith("statements=2;")));
+    }
+
+    //Token lookup and the streamed questions.
+    @Test
+    public void streamAllQuestions() throws Exception {
+        assertStatementCount(2, MockMvcRequestBuilders.get("/question/all?stream=true").header("authorization", "database_accesstoken1"), status().isOk());
+    }
+
+    //Token lookup, user lookup and the page of questions.
+    @Test
+    public void getAllQuestionsByUser() throws Exception {
+        assertStatementCount(3, MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"), status().isFound());
+    }
+
+    //Token lookup, question lookup and the page of answers.
+    @Test
+    public void getAllAnswersToQuestion() throws Exception {
+        assertStatementCount(3, MockMvcRequestBuilders.get("/answer/all/database_question_uuid").header("authorization", "database_accesstoken1"), status().isFound());
+    }
+
+    //Token lookup and user lookup.
+    @Test
+    public void userProfile() throws Exception {
+        assertStatementCount(2, MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken1"), status().isOk());
+    }
+
+    //Token lookup only, the user uuid lookup is answered by the query cache and the user by the entity cache.
+    @Test
+    public void userProfileFromSecondLevelCache() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken1")).andExpect(status().isOk());
+        assertStatementCount(1, MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken1"), status().isOk());
+    }
+
+    //Token lookup and the update, which finds a question owned by someone else.
+    @Test
+    public void editQuestionByNonOwner() throws Exception {
+        assertStatementCount(2, MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"), status().isForbidden());
+    }
+
+    //Token lookup and the update, which checks existence and ownership in the same statement without reading the question first.
+    @Test
+    public void editOwnQuestion() throws Exception {
+        assertStatementCount(2, MockMvcRequestBuilders.put("/question/edit/" + createQuestion("question_to_edit") + "?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2"), status().isOk());
+    }
+
+    //Token lookup and the delete, which finds a question owned by someone else.
+    @Test
+    public void deleteQuestionByNonOwner() throws Exception {
+        assertStatementCount(2, MockMvcRequestBuilders.delete("/question/delete/database_question_uuid").header("authorization", "database_accesstoken2"), status().isForbidden());
+    }
+
+    //Token lookup and the delete, which checks existence and ownership in the same statement.
+    @Test
+    public void deleteOwnQuestion() throws Exception {
+        assertStatementCount(2, MockMvcRequestBuilders.delete("/question/delete/" + createQuestion("question_to_delete")).header("authorization", "database_accesstoken2"), status().isOk());
+    }
+
+    //Token lookup and the delete, which finds no question.
+    @Test
+    public void deleteNonExistingQuestion() throws Exception {
+        assertStatementCount(2, MockMvcRequestBuilders.delete("/question/delete/non_existing_question_uuid").header("authorization", "database_accesstoken1"), status().isNotFound());
+    }
+
+    //Token lookup and the update, which finds an answer owned by someone else.
+    @Test
+    public void editAnswerByNonOwner() throws Exception {
+        assertStatementCount(2, MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"), status().isForbidden());
+    }
+
+    //Token lookup and the update, which checks existence and ownership in the same statement without reading the answer first.
+    @Test
+    public void editOwnAnswer() throws Exception {
+        final String answerId = JsonPath.read(mvc.perform(MockMvcRequestBuilders.post("/question/" + createQuestion("question_to_answer") + "/answer/create?answer=answer_to_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2"))
+                .andReturn().getResponse().getContentAsString(), "$.id");
+        assertStatementCount(2, MockMvcRequestBuilders.put("/answer/edit/" + answerId + "?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2"), status().isOk());
+    }
+
+    //Token lookup and the delete, which finds an answer owned by someone else.
+    @Test
+    public void deleteAnswerByNonOwner() throws Exception {
+        assertStatementCount(2, MockMvcRequestBuilders.delete("/answer/delete/database_answer_uuid").header("authorization", "database_accesstoken2"), status().isForbidden());
+    }
+
+    private String createQuestion(final String content) throws Exception {
+        return JsonPath.read(mvc.perform(MockMvcRequestBuilders.post("/question/create?content=" + content).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken2"))
+                .andReturn().getResponse().getContentAsString(), "$.id");
+    }
+
+    private void assertStatementCount(final long expected, final RequestBuilder request, final ResultMatcher expectedStatus) throws Exception {
+        statistics.clear();
+        mvc.perform(request).andExpect(expectedStatus);
+        assertEquals(expected, statistics.getPrepareStatementCount());
+    }
+}
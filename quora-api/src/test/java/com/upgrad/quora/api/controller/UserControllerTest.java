@@ -11,6 +11,10 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.Assert.assertNotEquals;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -45,4 +49,43 @@ public class UserControllerTest {
                 .andExpect(status().isUnauthorized())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"));
     }
+
+    //This test case passes when two signins of a user in the same second get different tokens and signing out one leaves the other signed in.
+    @Test
+    public void signinTwiceGivesDifferentTokens() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=twice_username&emailAddress=twice_email&password=twice_password&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated());
+        final String authorization = "Basic " + Base64.getEncoder().encodeToString("twice_username:twice_password".getBytes(StandardCharsets.UTF_8));
+
+        final String firstToken = mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", authorization))
+                .andExpect(status().isOk()).andReturn().getResponse().getHeader("access_token");
+        final String secondToken = mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", authorization))
+                .andExpect(status().isOk()).andReturn().getResponse().getHeader("access_token");
+        assertNotEquals(firstToken, secondToken);
+
+        mvc.perform(MockMvcRequestBuilders.post("/user/signout").header("authorization", firstToken))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", secondToken))
+                .andExpect(status().isOk());
+    }
+
+    //This test case passes when a session which the session cache serves is rejected as soon as it signs out.
+    @Test
+    public void signoutOfCachedSession() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=cached_username&emailAddress=cached_email&password=cached_password&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated());
+        final String accessToken = mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", "Basic " + Base64.getEncoder().encodeToString("cached_username:cached_password".getBytes(StandardCharsets.UTF_8))))
+                .andExpect(status().isOk()).andReturn().getResponse().getHeader("access_token");
+
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", accessToken))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", accessToken))
+                .andExpect(status().isOk());
+
+        mvc.perform(MockMvcRequestBuilders.post("/user/signout").header("authorization", accessToken))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", accessToken))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
 }
@@ -0,0 +1,114 @@
+package com.upgrad.quora.benchmark;
+
+import com.upgrad.quora.service.ServiceConfiguration;
+import com.upgrad.quora.service.business.AccessTokenValidator;
+import com.upgrad.quora.service.business.IdGenerator;
+import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.exception.AuthenticationFailedException;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.SignUpRestrictedException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the validation of the access token of a read request in the two modes of quora.auth.mode, through
+ * AccessTokenValidator.validateForRead as the read endpoints call it.
+ * database: the token digest is looked up in USER_AUTH, with the session cache off so that every call reads the table.
+ * stateless: the signature, issuer, audience and expiry of the JWT are checked locally, then the revoked token registry.
+ * The service layer is started without the web layer but with the second-level cache of the api, and a user is signed
+ * up and signed in for the token and deleted again afterwards. Needs the quora database set up by quora-db, set with
+ * -Dquora.benchmark.jdbc-url, -Dquora.benchmark.user and -Dquora.benchmark.password.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccessTokenValidationBenchmark {
+
+    @Param({AccessTokenValidator.DATABASE_MODE, AccessTokenValidator.STATELESS_MODE})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+
+    private AccessTokenValidator accessTokenValidator;
+
+    private String userUuid;
+
+    private String accessToken;
+
+    @Setup
+    public void setUp() throws SignUpRestrictedException, AuthenticationFailedException {
+        context = new SpringApplicationBuilder(ServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .properties("quora.auth.mode=" + mode,
+                        "quora.auth.session-cache.enabled=false",
+                        "spring.datasource.url=" + System.getProperty("quora.benchmark.jdbc-url", "jdbc:postgresql://localhost:5432/quora"),
+                        "spring.datasource.username=" + System.getProperty("quora.benchmark.user", "postgres"),
+                        "spring.datasource.password=" + System.getProperty("quora.benchmark.password", "admin"),
+                        "spring.jpa.database-platform=com.upgrad.quora.service.dao.QuoraPostgreSQLDialect",
+                        "spring.jpa.properties.hibernate.temp.use_jdbc_metadata_defaults=false",
+                        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+                        "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+                        "spring.jpa.properties.hibernate.cache.region.factory_class=com.upgrad.quora.service.dao.LocalCacheRegionFactory",
+                        "spring.jpa.properties.javax.persistence.sharedCache.mode=ENABLE_SELECTIVE")
+                .run();
+        accessTokenValidator = context.getBean(AccessTokenValidator.class);
+
+        final String userName = "benchmark_" + System.nanoTime();
+        final UserEntity userEntity = new UserEntity();
+        userEntity.setUuid(context.getBean(IdGenerator.class).generate());
+        userEntity.setFirstName("benchmark");
+        userEntity.setLastName("benchmark");
+        userEntity.setUserName(userName);
+        userEntity.setEmail(userName + "@example.com");
+        userEntity.setPassword("benchmark");
+        userEntity.setCountry("India");
+        userEntity.setAboutMe("benchmark");
+        userEntity.setDob("01-01-1990");
+        userEntity.setContactNumber("0123456789");
+        userEntity.setRole("nonadmin");
+        final UserBusinessService userBusinessService = context.getBean(UserBusinessService.class);
+        userUuid = userBusinessService.signUp(userEntity).getUuid();
+        accessToken = userBusinessService.signIn("Basic " + Base64.getEncoder().encodeToString(
+                (userName + ":benchmark").getBytes(StandardCharsets.UTF_8))).getAccessToken();
+    }
+
+    @TearDown
+    public void tearDown() {
+        final UserDao userDao = context.getBean(UserDao.class);
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).execute(status -> {
+            userDao.deleteUser(userUuid);
+            return null;
+        });
+        context.close();
+    }
+
+    @Benchmark
+    public void validateForRead() throws AuthorizationFailedException {
+        accessTokenValidator.validateForRead(accessToken, "User is signed out");
+    }
+
+    // The service layer with the auto-configured data source and JPA, as the api starts it
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @Import(ServiceConfiguration.class)
+    static class ServiceApplication {
+    }
+}
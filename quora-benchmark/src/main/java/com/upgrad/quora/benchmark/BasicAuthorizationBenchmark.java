@@ -0,0 +1,35 @@
+package com.upgrad.quora.benchmark;
+
+import com.upgrad.quora.service.business.UserBusinessService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding of the "Basic base64(username:password)" header done at the start of every signin.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BasicAuthorizationBenchmark {
+
+    @Param({"john.doe@example.com:correct horse battery staple"})
+    private String credentials;
+
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String[] decodeBasicAuthorization() {
+        return UserBusinessService.decodeBasicAuthorization(authorization);
+    }
+}
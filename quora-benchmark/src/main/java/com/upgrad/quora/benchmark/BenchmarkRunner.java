@@ -0,0 +1,26 @@
+package com.upgrad.quora.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar.
+ * It accepts the usual JMH command line options and always adds the GC profiler,
+ * so that every run reports the allocation rate per operation (gc.alloc.rate.norm) next to the throughput.
+ *
+ * Build with "mvn -pl quora-benchmark -am package" and run with "java -jar quora-benchmark/target/benchmarks.jar",
+ * optionally followed by a benchmark name pattern such as "PasswordHashing".
+ */
+public class BenchmarkRunner {
+
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
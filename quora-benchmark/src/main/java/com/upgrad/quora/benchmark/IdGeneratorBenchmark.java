@@ -0,0 +1,34 @@
+package com.upgrad.quora.benchmark;
+
+import com.upgrad.quora.service.business.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures id generation from several threads at once, random ids contend on the shared SecureRandom of UUID.randomUUID().
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+
+    @Param({IdGenerator.RANDOM, IdGenerator.TIME_ORDERED})
+    private String strategy;
+
+    private IdGenerator idGenerator;
+
+    @Setup
+    public void setUp() {
+        idGenerator = new IdGenerator(strategy);
+    }
+
+    @Benchmark
+    public String generate() {
+        return idGenerator.generate();
+    }
+}
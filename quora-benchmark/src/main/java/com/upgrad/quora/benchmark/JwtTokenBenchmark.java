@@ -0,0 +1,70 @@
+package com.upgrad.quora.benchmark;
+
+import com.upgrad.quora.service.business.JwtTokenProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures issuing and verifying JWT access tokens.
+ * constructProvider is the cost of building Algorithm.HMAC512 and the verifier, which used to happen on every signin,
+ * constructAndGenerate is that old signin path as a whole and generateToken is the path with the shared key ring provider.
+ * verifyToken is the local check the stateless mode does on every read request instead of a USER_AUTH lookup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenBenchmark {
+
+    private String keyId;
+
+    private String secret;
+
+    private String userUuid;
+
+    private JwtTokenProvider provider;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        final byte[] secretBytes = new byte[64];
+        ThreadLocalRandom.current().nextBytes(secretBytes);
+        keyId = "k1";
+        secret = Base64.getEncoder().encodeToString(secretBytes);
+        userUuid = UUID.randomUUID().toString();
+        provider = new JwtTokenProvider(keyId, secret);
+
+        final ZonedDateTime now = ZonedDateTime.now();
+        token = provider.generateToken(userUuid, now, now.plusHours(8));
+    }
+
+    @Benchmark
+    public JwtTokenProvider constructProvider() {
+        return new JwtTokenProvider(keyId, secret);
+    }
+
+    @Benchmark
+    public String constructAndGenerate() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        return new JwtTokenProvider(keyId, secret).generateToken(userUuid, now, now.plusHours(8));
+    }
+
+    @Benchmark
+    public String generateToken() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        return provider.generateToken(userUuid, now, now.plusHours(8));
+    }
+
+    @Benchmark
+    public String verifyToken() {
+        return provider.verifyToken(token);
+    }
+}
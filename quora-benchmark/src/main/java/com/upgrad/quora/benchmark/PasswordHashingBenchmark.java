@@ -0,0 +1,57 @@
+package com.upgrad.quora.benchmark;
+
+import com.upgrad.quora.service.business.PasswordCryptographyProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PasswordCryptographyProvider, which runs PBKDF2WithHmacSHA512 on every signup and signin.
+ * encryptWithSalt is the signin path, encryptWithNewSalt is the signup path which also draws a salt from SecureRandom.
+ * Run with -t set to the number of request threads expected on an auth node to see the throughput the hashing pool sustains.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordHashingBenchmark {
+
+    // 0 sizes the pool to the available processors, like the default configuration
+    @Param({"0"})
+    private int poolSize;
+
+    // Large enough that the benchmark threads never get rejected
+    @Param({"1024"})
+    private int queueCapacity;
+
+    @Param({"correct horse battery staple"})
+    private String password;
+
+    private PasswordCryptographyProvider provider;
+
+    private String salt;
+
+    @Setup
+    public void setUp() {
+        provider = new PasswordCryptographyProvider(poolSize, queueCapacity);
+        provider.init();
+        salt = provider.encrypt(password)[0];
+    }
+
+    @TearDown
+    public void tearDown() {
+        provider.shutdown();
+    }
+
+    @Benchmark
+    public String encryptWithSalt() {
+        return provider.encrypt(password, salt);
+    }
+
+    @Benchmark
+    public String[] encryptWithNewSalt() {
+        return provider.encrypt(password);
+    }
+}
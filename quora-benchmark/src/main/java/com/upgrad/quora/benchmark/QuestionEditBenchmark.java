@@ -0,0 +1,141 @@
+package com.upgrad.quora.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the statements of a question edit by its owner, one transaction each.
+ * merge: what entityManager.merge issued, the question read together with its owner, then an UPDATE of every column by id.
+ * targeted: the single editQuestionContentIfOwner statement, which checks ownership and sets only the content.
+ * Needs a running PostgreSQL, set with -Dquora.benchmark.jdbc-url, -Dquora.benchmark.user and -Dquora.benchmark.password.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuestionEditBenchmark {
+
+    @Param({"merge", "targeted"})
+    private String editPath;
+
+    @Param({"100000"})
+    private int rows;
+
+    private static final int USERS = 1000;
+
+    private Connection connection;
+
+    private PreparedStatement selectWithOwner;
+
+    private PreparedStatement updateAllColumns;
+
+    private PreparedStatement updateContentIfOwner;
+
+    private UUID[] keys;
+
+    private long[] owners;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("quora.benchmark.jdbc-url", "jdbc:postgresql://localhost:5432/quora"),
+                System.getProperty("quora.benchmark.user", "postgres"),
+                System.getProperty("quora.benchmark.password", "admin"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMPORARY TABLE EDIT_USERS(id SERIAL PRIMARY KEY, uuid UUID NOT NULL, firstname VARCHAR(30), lastname VARCHAR(30),"
+                    + " username VARCHAR(30), email VARCHAR(50), password VARCHAR(255), salt VARCHAR(200), country VARCHAR(30),"
+                    + " aboutme VARCHAR(50), dob VARCHAR(30), role VARCHAR(30), contactnumber VARCHAR(30))");
+            statement.execute("INSERT INTO EDIT_USERS(uuid, firstname, lastname, username, email, password, salt, country, aboutme, dob, role, contactnumber)"
+                    + " SELECT CAST(md5(random()::TEXT || i) AS UUID), 'first', 'last', 'user' || i, 'user' || i || '@example.com', md5(i::TEXT),"
+                    + " md5(random()::TEXT), 'India', 'about me', '01-01-1990', 'nonadmin', '0123456789' FROM generate_series(1, " + USERS + ") i");
+            statement.execute("CREATE TEMPORARY TABLE EDIT_QUESTION(id SERIAL PRIMARY KEY, uuid UUID NOT NULL, content VARCHAR(500) NOT NULL,"
+                    + " date TIMESTAMP NOT NULL, user_id INTEGER NOT NULL REFERENCES EDIT_USERS(id))");
+            statement.execute("INSERT INTO EDIT_QUESTION(uuid, content, date, user_id) SELECT CAST(md5(random()::TEXT || i) AS UUID),"
+                    + " 'question ' || i, now(), 1 + i % " + USERS + " FROM generate_series(1, " + rows + ") i");
+            statement.execute("CREATE UNIQUE INDEX UX_EDIT_QUESTION_UUID ON EDIT_QUESTION(uuid)");
+            statement.execute("ANALYZE EDIT_USERS");
+            statement.execute("ANALYZE EDIT_QUESTION");
+
+            final List<UUID> uuids = new ArrayList<>(rows);
+            final List<Long> userIds = new ArrayList<>(rows);
+            try (ResultSet resultSet = statement.executeQuery("SELECT uuid, user_id FROM EDIT_QUESTION")) {
+                while (resultSet.next()) {
+                    uuids.add((UUID) resultSet.getObject(1));
+                    userIds.add(resultSet.getLong(2));
+                }
+            }
+            keys = uuids.toArray(new UUID[0]);
+            owners = userIds.stream().mapToLong(Long::longValue).toArray();
+        }
+        selectWithOwner = connection.prepareStatement("SELECT q.id, q.uuid, q.content, q.date, q.user_id, u.id, u.uuid, u.firstname, u.lastname,"
+                + " u.username, u.email, u.password, u.salt, u.country, u.aboutme, u.dob, u.role, u.contactnumber"
+                + " FROM EDIT_QUESTION q INNER JOIN EDIT_USERS u ON q.user_id = u.id WHERE q.uuid = ?");
+        updateAllColumns = connection.prepareStatement("UPDATE EDIT_QUESTION SET content = ?, date = ?, user_id = ?, uuid = ? WHERE id = ?");
+        updateContentIfOwner = connection.prepareStatement("WITH target AS (SELECT id, user_id FROM EDIT_QUESTION WHERE uuid = ?),"
+                + " updated AS (UPDATE EDIT_QUESTION SET content = ? WHERE id IN (SELECT id FROM target WHERE user_id = ?) RETURNING id)"
+                + " SELECT (SELECT count(*) FROM target), (SELECT count(*) FROM updated), (SELECT max(id) FROM updated)");
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.rollback();
+        selectWithOwner.close();
+        updateAllColumns.close();
+        updateContentIfOwner.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public long editQuestionContent() throws SQLException {
+        final int index = ThreadLocalRandom.current().nextInt(keys.length);
+        final String content = "edited question " + ThreadLocalRandom.current().nextInt();
+        final long id = "merge".equals(editPath) ? merge(keys[index], owners[index], content) : targeted(keys[index], owners[index], content);
+        connection.commit();
+        return id;
+    }
+
+    private long merge(final UUID uuid, final long userId, final String content) throws SQLException {
+        selectWithOwner.setObject(1, uuid);
+        final long id;
+        final Timestamp date;
+        try (ResultSet resultSet = selectWithOwner.executeQuery()) {
+            if (!resultSet.next() || resultSet.getLong(5) != userId) {
+                return -1;
+            }
+            id = resultSet.getLong(1);
+            date = resultSet.getTimestamp(4);
+        }
+        updateAllColumns.setString(1, content);
+        updateAllColumns.setTimestamp(2, date);
+        updateAllColumns.setLong(3, userId);
+        updateAllColumns.setObject(4, uuid);
+        updateAllColumns.setLong(5, id);
+        updateAllColumns.executeUpdate();
+        return id;
+    }
+
+    private long targeted(final UUID uuid, final long userId, final String content) throws SQLException {
+        updateContentIfOwner.setObject(1, uuid);
+        updateContentIfOwner.setString(2, content);
+        updateContentIfOwner.setLong(3, userId);
+        try (ResultSet resultSet = updateContentIfOwner.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(2) > 0 ? resultSet.getLong(3) : -1;
+        }
+    }
+}
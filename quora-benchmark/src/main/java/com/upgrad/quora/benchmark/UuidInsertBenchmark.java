@@ -0,0 +1,77 @@
+package com.upgrad.quora.benchmark;
+
+import com.upgrad.quora.service.business.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures batched inserts into a table with a unique uuid index, as on USERS, QUESTION, ANSWER and USER_AUTH,
+ * for random (version 4) and time-ordered (version 7) ids.
+ * After each trial the size of the uuid index per row is printed, random ids split pages all over the index and leave them half empty.
+ * Needs a running PostgreSQL, set with -Dquora.benchmark.jdbc-url, -Dquora.benchmark.user and -Dquora.benchmark.password.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UuidInsertBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({IdGenerator.RANDOM, IdGenerator.TIME_ORDERED})
+    private String strategy;
+
+    private IdGenerator idGenerator;
+
+    private Connection connection;
+
+    private PreparedStatement insert;
+
+    @Setup
+    public void setUp() throws SQLException {
+        idGenerator = new IdGenerator(strategy);
+        connection = DriverManager.getConnection(
+                System.getProperty("quora.benchmark.jdbc-url", "jdbc:postgresql://localhost:5432/quora"),
+                System.getProperty("quora.benchmark.user", "postgres"),
+                System.getProperty("quora.benchmark.password", "admin"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMPORARY TABLE UUID_INSERT(id BIGSERIAL PRIMARY KEY, uuid UUID NOT NULL)");
+            statement.execute("CREATE UNIQUE INDEX UX_UUID_INSERT_UUID ON UUID_INSERT(uuid)");
+        }
+        insert = connection.prepareStatement("INSERT INTO UUID_INSERT(uuid) VALUES (?)");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT count(*), pg_relation_size('UX_UUID_INSERT_UUID') FROM UUID_INSERT")) {
+            resultSet.next();
+            final long rows = resultSet.getLong(1);
+            final long indexBytes = resultSet.getLong(2);
+            System.out.println(strategy + ": " + rows + " rows, uuid index " + indexBytes / 1024 + " kB, "
+                    + String.format("%.1f", (double) indexBytes / rows) + " bytes per row");
+        }
+        insert.close();
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setObject(1, UUID.fromString(idGenerator.generate()));
+            insert.addBatch();
+        }
+        return insert.executeBatch();
+    }
+}
@@ -0,0 +1,92 @@
+package com.upgrad.quora.benchmark;
+
+import com.upgrad.quora.service.entity.UuidAttributeConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the lookup of a row by its uuid stored as VARCHAR(200), as before the V6 migration, with native uuid storage.
+ * Each trial fills a temporary table with the same number of random uuids and prints its table and index size.
+ * Needs a running PostgreSQL, set with -Dquora.benchmark.jdbc-url, -Dquora.benchmark.user and -Dquora.benchmark.password.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UuidLookupBenchmark {
+
+    @Param({"varchar", "uuid"})
+    private String columnType;
+
+    @Param({"200000"})
+    private int rows;
+
+    private Connection connection;
+
+    private PreparedStatement lookup;
+
+    private String[] keys;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("quora.benchmark.jdbc-url", "jdbc:postgresql://localhost:5432/quora"),
+                System.getProperty("quora.benchmark.user", "postgres"),
+                System.getProperty("quora.benchmark.password", "admin"));
+        final String sqlType = "uuid".equals(columnType) ? "UUID" : "VARCHAR(200)";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMPORARY TABLE UUID_LOOKUP(id SERIAL PRIMARY KEY, uuid " + sqlType + " NOT NULL)");
+            statement.execute("INSERT INTO UUID_LOOKUP(uuid) SELECT CAST(CAST(md5(random()::TEXT || i) AS UUID) AS " + sqlType + ")"
+                    + " FROM generate_series(1, " + rows + ") i");
+            statement.execute("CREATE UNIQUE INDEX UX_UUID_LOOKUP_UUID ON UUID_LOOKUP(uuid)");
+            statement.execute("ANALYZE UUID_LOOKUP");
+
+            try (ResultSet sizes = statement.executeQuery("SELECT pg_size_pretty(pg_relation_size('UUID_LOOKUP')),"
+                    + " pg_size_pretty(pg_relation_size('UX_UUID_LOOKUP_UUID'))")) {
+                sizes.next();
+                System.out.println(columnType + ": table " + sizes.getString(1) + ", uuid index " + sizes.getString(2));
+            }
+
+            final List<String> uuids = new ArrayList<>(rows);
+            try (ResultSet resultSet = statement.executeQuery("SELECT uuid FROM UUID_LOOKUP")) {
+                while (resultSet.next()) {
+                    uuids.add(resultSet.getString(1));
+                }
+            }
+            keys = uuids.toArray(new String[0]);
+        }
+        lookup = connection.prepareStatement("SELECT id FROM UUID_LOOKUP WHERE uuid = ?");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        lookup.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public long lookupByUuid() throws SQLException {
+        final String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        if ("uuid".equals(columnType)) {
+            lookup.setObject(1, UuidAttributeConverter.toUuid(key));
+        } else {
+            lookup.setString(1, key);
+        }
+        try (ResultSet resultSet = lookup.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
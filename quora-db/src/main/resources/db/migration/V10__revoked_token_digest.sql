@@ -0,0 +1,11 @@
+--REVOKED_TOKEN keeps the SHA-256 digest of the revoked access token instead of the token itself, as USER_AUTH looks
+--sessions up by ACCESS_TOKEN_DIGEST. A leaked row no longer hands out a token which is valid until it expires.
+ALTER TABLE REVOKED_TOKEN ADD COLUMN IF NOT EXISTS ACCESS_TOKEN_DIGEST BYTEA;
+UPDATE REVOKED_TOKEN SET ACCESS_TOKEN_DIGEST = digest(convert_to(ACCESS_TOKEN, 'UTF8'), 'sha256') WHERE ACCESS_TOKEN_DIGEST IS NULL;
+ALTER TABLE REVOKED_TOKEN ALTER COLUMN ACCESS_TOKEN_DIGEST SET NOT NULL;
+ALTER TABLE REVOKED_TOKEN ADD CONSTRAINT CK_REVOKED_TOKEN_ACCESS_TOKEN_DIGEST_LENGTH CHECK (octet_length(ACCESS_TOKEN_DIGEST) = 32);
+ALTER TABLE REVOKED_TOKEN DROP COLUMN IF EXISTS ACCESS_TOKEN;
+
+--A row is of no use once its token has expired, the periodic revocation sync deletes such rows.
+--Index which serves that delete
+CREATE INDEX IF NOT EXISTS IDX_REVOKED_TOKEN_EXPIRES_AT ON REVOKED_TOKEN(EXPIRES_AT);
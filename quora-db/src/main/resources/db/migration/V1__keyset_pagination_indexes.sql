@@ -0,0 +1,6 @@
+--Composite indexes which serve the keyset pagination (date desc, id desc) of all questions and of the questions of a user
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_QUESTION_DATE_ID ON QUESTION(date DESC, id DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_QUESTION_USER_DATE_ID ON QUESTION(user_id, date DESC, id DESC);
+
+--Composite index which serves the keyset pagination (date desc, id desc) of the answers to a question
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_ANSWER_QUESTION_DATE_ID ON ANSWER(question_id, date DESC, id DESC);
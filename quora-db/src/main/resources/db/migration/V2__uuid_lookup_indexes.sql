@@ -0,0 +1,4 @@
+--Unique indexes which serve the lookups of a user, a question and an answer by its uuid
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS UX_USERS_UUID ON USERS(uuid);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS UX_QUESTION_UUID ON QUESTION(uuid);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS UX_ANSWER_UUID ON ANSWER(uuid);
@@ -0,0 +1,11 @@
+--Unique index which serves the lookup of a session by its access token on every authorized request
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS UX_USER_AUTH_ACCESS_TOKEN ON USER_AUTH(ACCESS_TOKEN);
+
+--Index which serves the active sessions of a user and the cascade when a user is deleted
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_USER_AUTH_USER_ID ON USER_AUTH(USER_ID);
+
+--Partial index which serves the periodic read of recently signed out sessions, sessions which are still signed in are left out
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_USER_AUTH_LOGOUT_AT ON USER_AUTH(LOGOUT_AT) WHERE LOGOUT_AT IS NOT NULL;
+
+--Index which serves the cascade to the answers of a user when the user is deleted
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_ANSWER_USER_ID ON ANSWER(user_id);
@@ -0,0 +1,8 @@
+--pgcrypto provides digest(), which backfills the SHA-256 digest of the access tokens already stored
+CREATE EXTENSION IF NOT EXISTS pgcrypto;
+
+--Fixed size SHA-256 digest of ACCESS_TOKEN, sessions are looked up by the digest instead of the token itself
+ALTER TABLE USER_AUTH ADD COLUMN IF NOT EXISTS ACCESS_TOKEN_DIGEST BYTEA;
+UPDATE USER_AUTH SET ACCESS_TOKEN_DIGEST = digest(convert_to(ACCESS_TOKEN, 'UTF8'), 'sha256') WHERE ACCESS_TOKEN_DIGEST IS NULL;
+ALTER TABLE USER_AUTH ALTER COLUMN ACCESS_TOKEN_DIGEST SET NOT NULL;
+ALTER TABLE USER_AUTH ADD CONSTRAINT CK_USER_AUTH_ACCESS_TOKEN_DIGEST_LENGTH CHECK (octet_length(ACCESS_TOKEN_DIGEST) = 32);
@@ -0,0 +1,5 @@
+--Unique index which serves the lookup of a session by the digest of its access token on every authorized request
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS UX_USER_AUTH_ACCESS_TOKEN_DIGEST ON USER_AUTH(ACCESS_TOKEN_DIGEST);
+
+--The index on the full access token is no longer read, the digest index above keeps the tokens unique
+DROP INDEX CONCURRENTLY IF EXISTS UX_USER_AUTH_ACCESS_TOKEN;
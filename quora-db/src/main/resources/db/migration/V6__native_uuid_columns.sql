@@ -0,0 +1,17 @@
+--Converts an identifier to the UUID it is stored as, the same mapping as UuidAttributeConverter:
+--canonical UUID strings are kept, any other identifier becomes the name based (version 3) UUID of its UTF-8 bytes
+CREATE OR REPLACE FUNCTION quora_identifier_to_uuid(identifier TEXT) RETURNS UUID AS $$
+    SELECT CASE
+        WHEN identifier ~ '^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$' THEN identifier::UUID
+        ELSE overlay(overlay(md5(identifier) PLACING '3' FROM 13)
+                     PLACING to_hex((('x' || substr(md5(identifier), 17, 1))::BIT(4)::INTEGER & 3) | 8) FROM 17)::UUID
+    END
+$$ LANGUAGE SQL IMMUTABLE STRICT;
+
+--Native 16 byte uuid columns instead of VARCHAR(200), the unique uuid indexes are rebuilt along with the tables
+ALTER TABLE USERS ALTER COLUMN uuid TYPE UUID USING quora_identifier_to_uuid(uuid);
+ALTER TABLE QUESTION ALTER COLUMN uuid TYPE UUID USING quora_identifier_to_uuid(uuid);
+ALTER TABLE ANSWER ALTER COLUMN uuid TYPE UUID USING quora_identifier_to_uuid(uuid);
+ALTER TABLE USER_AUTH ALTER COLUMN UUID TYPE UUID USING quora_identifier_to_uuid(UUID);
+
+DROP FUNCTION quora_identifier_to_uuid(TEXT);
@@ -0,0 +1,4 @@
+--Question ids are allocated by Hibernate in blocks of 50 with the pooled optimizer, so a bulk import reads the sequence
+--once per 50 questions and its inserts can be batched. The increment must equal the allocationSize of QuestionEntity.
+--Inserts which take the column default still receive an id that no block hands out.
+ALTER SEQUENCE QUESTION_ID_SEQ INCREMENT BY 50;
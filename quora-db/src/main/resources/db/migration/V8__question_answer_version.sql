@@ -0,0 +1,5 @@
+--Version of the content of every question and answer, raised by each edit. An edit can require the version the client
+--last read, sent in If-Match, so two concurrent edits of the same row no longer overwrite each other without row locks.
+--Adding a column with a constant default does not rewrite the tables before PostgreSQL 11, existing rows start at 0.
+ALTER TABLE QUESTION ADD COLUMN version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE ANSWER ADD COLUMN version INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,12 @@
+--Access tokens revoked before they expired whose USER_AUTH row is gone, such as the sessions of a deleted user.
+--The stateless token check of every instance reads the recent ones along with the signed out sessions.
+--A row is of no use once its token has expired, it is deleted when the next revocation is recorded.
+CREATE TABLE IF NOT EXISTS REVOKED_TOKEN(
+	ID BIGSERIAL PRIMARY KEY,
+	ACCESS_TOKEN VARCHAR(500) NOT NULL,
+	EXPIRES_AT TIMESTAMP NOT NULL,
+	REVOKED_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+--Index which serves the periodic read of recently revoked tokens
+CREATE INDEX IF NOT EXISTS IDX_REVOKED_TOKEN_REVOKED_AT ON REVOKED_TOKEN(REVOKED_AT);
@@ -0,0 +1,37 @@
+--Runs after every migrate and fails it when a query no longer uses the index its migration added.
+--Each row names the migration version, the index it added and a query of the application which should use it.
+--The row of an index is removed when a later migration drops that index.
+--Sequential scans are disabled for the check, the test tables are so small that the planner would otherwise prefer them.
+--An index which was left invalid by a failed concurrent build is never used, so it fails the check as well.
+DO $$
+DECLARE
+    index_check RECORD;
+    query_plan TEXT;
+BEGIN
+    PERFORM set_config('enable_seqscan', 'off', true);
+    FOR index_check IN
+        SELECT checks.version, checks.index_name, checks.query
+        FROM (VALUES
+            ('1', 'idx_question_date_id', 'SELECT id FROM QUESTION ORDER BY date DESC, id DESC LIMIT 21'),
+            ('1', 'idx_question_user_date_id', 'SELECT id FROM QUESTION WHERE user_id = 1 ORDER BY date DESC, id DESC LIMIT 21'),
+            ('1', 'idx_answer_question_date_id', 'SELECT id FROM ANSWER WHERE question_id = 1 ORDER BY date DESC, id DESC LIMIT 21'),
+            ('2', 'ux_users_uuid', 'SELECT * FROM USERS WHERE uuid = ''00000000-0000-0000-0000-000000000000'''),
+            ('2', 'ux_question_uuid', 'SELECT * FROM QUESTION WHERE uuid = ''00000000-0000-0000-0000-000000000000'''),
+            ('2', 'ux_answer_uuid', 'SELECT * FROM ANSWER WHERE uuid = ''00000000-0000-0000-0000-000000000000'''),
+            ('3', 'idx_user_auth_user_id', 'SELECT * FROM USER_AUTH WHERE USER_ID = 1 AND LOGOUT_AT IS NULL'),
+            ('3', 'idx_user_auth_logout_at', 'SELECT * FROM USER_AUTH WHERE LOGOUT_AT >= now() AND EXPIRES_AT > now()'),
+            ('3', 'idx_answer_user_id', 'SELECT id FROM ANSWER WHERE user_id = 1'),
+            ('5', 'ux_user_auth_access_token_digest', 'SELECT * FROM USER_AUTH WHERE ACCESS_TOKEN_DIGEST = ''\x00''::bytea'),
+            ('9', 'idx_revoked_token_revoked_at', 'SELECT * FROM REVOKED_TOKEN WHERE REVOKED_AT >= now()'),
+            ('10', 'idx_revoked_token_expires_at', 'DELETE FROM REVOKED_TOKEN WHERE EXPIRES_AT <= now()')
+        ) AS checks(version, index_name, query)
+        WHERE checks.version IN (SELECT version FROM flyway_schema_history WHERE success)
+    LOOP
+        EXECUTE 'EXPLAIN (FORMAT JSON) ' || index_check.query INTO query_plan;
+        IF position('"Index Name": "' || index_check.index_name || '"' IN query_plan) = 0 THEN
+            RAISE EXCEPTION 'Migration % expects % to use index %, the plan is %',
+                index_check.version, index_check.query, index_check.index_name, query_plan;
+        END IF;
+    END LOOP;
+END
+$$;
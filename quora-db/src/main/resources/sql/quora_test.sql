@@ -26,3 +26,10 @@ insert into question (id,uuid,content,date,user_id) values(1024,'database_questi
 
 --Insert values in ANSWER table
 insert into answer(id,uuid,ans,date,user_id,question_id) values (1024,'database_answer_uuid','my_answer','2018-09-17 19:41:19.593',1026,1024);
+
+
+--Move the id sequences past the ids of the records above, questions are imported in blocks of ids which would otherwise reach them
+SELECT setval('users_id_seq', 1029);
+SELECT setval('user_auth_id_seq', 1027);
+SELECT setval('question_id_seq', 1024);
+SELECT setval('answer_id_seq', 1024);
@@ -0,0 +1,77 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.RequestTiming;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.dto.UserSession;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Validates access tokens for read-only endpoints.
+ * In "database" mode (the default) the token is looked up in USER_AUTH.
+ * In "stateless" mode the signature, issuer, audience and expiry of the JWT are checked locally against the key ring,
+ * and signed out tokens are rejected through the RevokedTokenRegistry, so no USER_AUTH read is needed.
+ */
+@Component
+public class AccessTokenValidator {
+
+    public static final String DATABASE_MODE = "database";
+
+    public static final String STATELESS_MODE = "stateless";
+
+    @Value("${quora.auth.mode:" + DATABASE_MODE + "}")
+    private String mode;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    @Autowired
+    private RevokedTokenRegistry revokedTokenRegistry;
+
+    public boolean isStateless() {
+        return STATELESS_MODE.equalsIgnoreCase(mode);
+    }
+
+    /*
+        This method validates the access token of a read-only request
+        @param accessToken holds the access token for authenticating the user
+        @param signedOutMessage message returned to the user if the token has been signed out
+        @throws AuthorizationFailedException If the token is not valid or user already logged out
+     */
+    public void validateForRead(final String accessToken, final String signedOutMessage) throws AuthorizationFailedException {
+        if (isStateless()) {
+            RequestTiming.tokenValidationStarted();
+            try {
+                // Validate if the token was issued by this application and has not expired
+                if (jwtKeyRing.verifyToken(accessToken) == null) {
+                    throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
+                }
+
+                // Validate if user has signed out
+                if (revokedTokenRegistry.isRevoked(accessToken)) {
+                    throw new AuthorizationFailedException("ATHR-002", signedOutMessage);
+                }
+                return;
+            } finally {
+                RequestTiming.tokenValidationEnded();
+            }
+        }
+
+        UserSession userSession = userDao.getUserSession(accessToken);
+
+        // Validate if user is signed in or not
+        if (userSession == null) {
+            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
+        }
+
+        // Validate if user has signed out
+        if (userSession.getLogoutAt() != null) {
+            throw new AuthorizationFailedException("ATHR-002", signedOutMessage);
+        }
+    }
+}
@@ -1,6 +1,19 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.common.CacheStatistics;
+import com.upgrad.quora.service.common.ConnectionPoolStatistics;
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.RouteLatencyStatistics;
+import com.upgrad.quora.service.common.RowHandler;
+import com.upgrad.quora.service.common.UnexpectedException;
+import com.upgrad.quora.service.common.WorkerPoolStatistics;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dao.UserAuthTokenCache;
 import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.datasource.ConnectionPoolMonitor;
+import com.upgrad.quora.service.dto.QuestionExport;
+import com.upgrad.quora.service.dto.QuestionExportRow;
+import com.upgrad.quora.service.dto.UserSession;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
@@ -8,11 +21,15 @@ import com.upgrad.quora.service.exception.SignOutRestrictedException;
 import com.upgrad.quora.service.exception.SignUpRestrictedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 
 @Service
 public class AdminBusinessService {
@@ -23,10 +40,29 @@ public class AdminBusinessService {
     @Autowired
     private PasswordCryptographyProvider cryptographyProvider;
 
+    @Autowired
+    private UserAuthTokenCache userAuthTokenCache;
+
+    @Autowired
+    private ConnectionPoolMonitor connectionPoolMonitor;
+
+    @Autowired
+    private RouteLatencyRecorder routeLatencyRecorder;
+
+    @Autowired
+    private RevokedTokenRegistry revokedTokenRegistry;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Value("${quora.streaming.fetch-size:500}")
+    private int streamingFetchSize;
+
     /*
           Used to create new user
           It uses @Param UserEntity & @return UserEntity Object & @throw SignUpRestrictedException
           if validation for user details conflict.
+          The password and salt of the user must already be hashed, see UserBusinessService.signUp
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public UserEntity createUser(final UserEntity userEntity)throws SignUpRestrictedException {
@@ -42,17 +78,12 @@ public class AdminBusinessService {
 
         }
 
-        // Encrypt salt & Password
-        String[] encryptedText = cryptographyProvider.encrypt(userEntity.getPassword());
-        userEntity.setSalt(encryptedText[0]);
-        userEntity.setPassword(encryptedText[1]);
-
         return userDao.createUser(userEntity);
 
     }
     @Transactional(propagation = Propagation.REQUIRED)
     public UserEntity logoutUser(final String authorizationToken) throws SignOutRestrictedException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorizationToken);
+        UserAuthEntity userAuthEntity = userDao.getUserAuthTokenForUpdate(authorizationToken);
 
         // Validate if user is signed in or not
         if (userAuthEntity == null) {
@@ -61,37 +92,162 @@ public class AdminBusinessService {
 
         final ZonedDateTime now = ZonedDateTime.now();
         userAuthEntity.setLogoutAt(now);
+        revokedTokenRegistry.revokeAfterCommit(userAuthEntity.getAccessTokenDigest(), userAuthEntity.getExpiresAt());
 
         return userAuthEntity.getUser();
     }
 
     @Transactional(propagation = Propagation.REQUIRED)
     public void deleteUser(final String uuid, final String authorizationToken) throws UserNotFoundException, AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorizationToken);
+        authorizeAdmin(authorizationToken);
+
+        // Validate if requested user exist or not
+        if (userDao.getUserByUuid(uuid) == null) {
+            throw new UserNotFoundException("USR-001", "User with entered uuid to be deleted does not exist");
+        }
+
+        // Tokens of the deleted user must stop working in the stateless mode too, on every instance: their USER_AUTH
+        // rows go with the user, so the revocations are recorded where the other instances sync them from
+        final ZonedDateTime now = ZonedDateTime.now();
+        for (UserAuthEntity activeToken : userDao.getActiveUserAuthTokens(uuid, now)) {
+            userDao.createRevokedToken(activeToken.getAccessTokenDigest(), activeToken.getExpiresAt(), now);
+            revokedTokenRegistry.revokeAfterCommit(activeToken.getAccessTokenDigest(), activeToken.getExpiresAt());
+        }
+
+        userDao.deleteUser(uuid);
+    }
+
+    /*
+          Used to read the hit, miss and eviction counters of the access token session cache
+          Only an admin can read them
+     */
+    public CacheStatistics getSessionCacheStatistics(final String authorizationToken) throws AuthorizationFailedException {
+        authorizeAdmin(authorizationToken);
+        return userAuthTokenCache.getStatistics();
+    }
+
+    /*
+          Used to read the queue depth, rejections, queue wait and hash time of the password hashing pool
+          Only an admin can read them
+     */
+    public WorkerPoolStatistics getPasswordHashingStatistics(final String authorizationToken) throws AuthorizationFailedException {
+        authorizeAdmin(authorizationToken);
+        return cryptographyProvider.getStatistics();
+    }
+
+    /*
+          Used to read the gauges, acquire and hold times, callers and leaks of the database connection pools
+          Only an admin can read them
+     */
+    public List<ConnectionPoolStatistics> getConnectionPoolStatistics(final String authorizationToken) throws AuthorizationFailedException {
+        authorizeAdmin(authorizationToken);
+        return connectionPoolMonitor.getStatistics();
+    }
+
+    /*
+          Used to read the request counts and latency percentiles of the api per route and status
+          Only an admin can read them
+     */
+    public List<RouteLatencyStatistics> getRouteLatencyStatistics(final String authorizationToken) throws AuthorizationFailedException {
+        authorizeAdmin(authorizationToken);
+        return routeLatencyRecorder.getStatistics();
+    }
+
+    /*
+          Used to export every question with all its answers, oldest question first
+          The questions and answers are read in one query through a server-side cursor, and every question
+          is handed to the handler as soon as its last answer has been read, so only one question is held at a time
+          Only an admin can export, the access token is validated before the first question is handed over
+          @param since ISO-8601 date and time with offset, only questions posted at or after it are exported, or null for all
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public void exportQuestions(final String authorizationToken, final String since, final RowHandler<QuestionExport> handler) throws AuthorizationFailedException, IOException {
+        authorizeAdmin(authorizationToken);
+        final ZonedDateTime sinceDate = parseSince(since);
+
+        final QuestionExportAssembler assembler = new QuestionExportAssembler(handler);
+        questionDao.scrollQuestionExport(sinceDate, streamingFetchSize, assembler);
+        assembler.finish();
+    }
+
+    /*
+          Used to decide whether a request may see how its time was spent, which only an admin may
+          @return true if the token belongs to a signed in admin
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public boolean isAdmin(final String authorizationToken) {
+        try {
+            authorizeAdmin(authorizationToken);
+            return true;
+        } catch (AuthorizationFailedException e) {
+            return false;
+        }
+    }
+
+    private static ZonedDateTime parseSince(final String since) {
+        if (since == null || since.isEmpty()) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(since);
+        } catch (DateTimeParseException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_006, e, since);
+        }
+    }
+
+    private UserSession authorizeAdmin(final String authorizationToken) throws AuthorizationFailedException {
+        UserSession userSession = userDao.getUserSession(authorizationToken);
 
         // Validate if user is signed in or not
-        if (userAuthEntity == null) {
+        if (userSession == null) {
             throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
         }
 
         // Validate if user has signed out
-        if (userAuthEntity.getLogoutAt() != null) {
+        if (userSession.getLogoutAt() != null) {
             throw new AuthorizationFailedException("ATHR-002", "User is signed out");
         }
 
         // Validate if user is admin
-        if (userAuthEntity.getUser().getRole().equals("nonadmin")) {
+        if (userSession.getRole().equals("nonadmin")) {
             throw new AuthorizationFailedException("ATHR-003", "Unauthorized Access, Entered user is not an admin");
         }
 
-        // Validate if requested user exist or not
-        if (userDao.getUserByUuid(uuid) == null) {
-            throw new UserNotFoundException("USR-001", "User with entered uuid to be deleted does not exist");
-        }
-
-        userDao.deleteUser(uuid);
+        return userSession;
     }
 
+    // Joins the consecutive rows of one question back into the question with its answers
+    private static class QuestionExportAssembler implements RowHandler<QuestionExportRow> {
+
+        private final RowHandler<QuestionExport> handler;
 
+        private QuestionExport current;
+
+        private long currentId;
+
+        private QuestionExportAssembler(final RowHandler<QuestionExport> handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void handle(final QuestionExportRow row) throws IOException {
+            if (current == null || currentId != row.getQuestionId()) {
+                finish();
+                current = new QuestionExport(row);
+                currentId = row.getQuestionId();
+            }
+            if (row.hasAnswer()) {
+                current.addAnswer(row);
+            }
+        }
+
+        // Hands over the question being assembled, called once more after the last row
+        private void finish() throws IOException {
+            if (current != null) {
+                handler.handle(current);
+                current = null;
+            }
+        }
+    }
 
 }
@@ -1,14 +1,18 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.common.WriteOutcome;
+import com.upgrad.quora.service.common.Page;
+import com.upgrad.quora.service.common.PageCursor;
 import com.upgrad.quora.service.dao.AnswerDao;
 import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.dto.AnswerSummary;
+import com.upgrad.quora.service.dto.UserSession;
 import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.entity.QuestionEntity;
-import com.upgrad.quora.service.entity.UserAuthEntity;
-import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.EditConflictException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -16,8 +20,6 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
-import java.util.List;
-import java.util.UUID;
 
 @Service
 public class AnswerBusinessService {
@@ -31,17 +33,26 @@ public class AnswerBusinessService {
     @Autowired
     private AnswerDao answerDao;
 
+    @Autowired
+    private AccessTokenValidator accessTokenValidator;
+
+    @Autowired
+    private PageLimitResolver pageLimitResolver;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
     @Transactional(propagation = Propagation.REQUIRED)
     public AnswerEntity createAnswer(final AnswerEntity answerEntity, final String questionId, final String authorization) throws AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
+        UserSession userSession = userDao.getUserSession(authorization);
 
         // Validate if user is signed in or not
-        if (userAuthEntity == null) {
+        if (userSession == null) {
             throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
         }
 
         // Validate if user has signed out
-        if (userAuthEntity.getLogoutAt() != null) {
+        if (userSession.getLogoutAt() != null) {
             throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to post an answer");
         }
 
@@ -51,96 +62,91 @@ public class AnswerBusinessService {
             throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
         }
 
-        answerEntity.setUuid(UUID.randomUUID().toString());
+        answerEntity.setUuid(idGenerator.generate());
         answerEntity.setDate(ZonedDateTime.now());
-        answerEntity.setUser(userAuthEntity.getUser());
+        answerEntity.setUser(userDao.getUserReference(userSession.getUserId()));
         answerEntity.setQuestion(questionEntity);
 
         return answerDao.createAnswer(answerEntity);
     }
 
     @Transactional(propagation = Propagation.REQUIRED)
-    public AnswerEntity editAnswerContent(final AnswerEntity answerEntity, final String authorization) throws AuthorizationFailedException, AnswerNotFoundException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
+    public AnswerEntity editAnswerContent(final AnswerEntity answerEntity, final String authorization) throws AuthorizationFailedException, AnswerNotFoundException, EditConflictException {
+        UserSession userSession = userDao.getUserSession(authorization);
 
         // Validate if user is signed in or not
-        if (userAuthEntity == null) {
+        if (userSession == null) {
             throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
         }
 
         // Validate if user has signed out
-        if (userAuthEntity.getLogoutAt() != null) {
+        if (userSession.getLogoutAt() != null) {
             throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to edit an answer");
         }
 
+        // Update the answer if current user is the owner of requested answer, in one statement
+        WriteOutcome outcome = answerDao.editAnswerContent(answerEntity, userSession.getUserId());
+
         // Validate if requested answer exist or not
-        AnswerEntity existingAnswerEntity = answerDao.getAnswerByUuid(answerEntity.getUuid());
-        if (existingAnswerEntity == null) {
+        if (outcome == WriteOutcome.NOT_FOUND) {
             throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
         }
 
         // Validate if current user is the owner of requested answer
-        UserEntity currentUser = userAuthEntity.getUser();
-        UserEntity answerOwner = answerDao.getAnswerByUuid(answerEntity.getUuid()).getUser();
-        if (currentUser.getId() != answerOwner.getId()) {
+        if (outcome == WriteOutcome.NOT_PERMITTED) {
             throw new AuthorizationFailedException("ATHR-003", "Only the answer owner can edit the answer");
         }
 
-        answerEntity.setId(existingAnswerEntity.getId());
-        answerEntity.setDate(existingAnswerEntity.getDate());
-        answerEntity.setUser(existingAnswerEntity.getUser());
-        answerEntity.setQuestion(existingAnswerEntity.getQuestion());
-        return answerDao.editAnswerContent(answerEntity);
+        // Validate if requested answer still has the version the user edited
+        if (outcome == WriteOutcome.CONFLICT) {
+            throw new EditConflictException("ANS-002", "The answer was edited since it was read, read it again before editing");
+        }
+
+        return answerEntity;
     }
 
     @Transactional(propagation = Propagation.REQUIRED)
     public void deleteAnswer(final String answerId, final String authorization) throws AuthorizationFailedException, AnswerNotFoundException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
+        UserSession userSession = userDao.getUserSession(authorization);
 
         // Validate if user is signed in or not
-        if (userAuthEntity == null) {
+        if (userSession == null) {
             throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
         }
 
         // Validate if user has signed out
-        if (userAuthEntity.getLogoutAt() != null) {
+        if (userSession.getLogoutAt() != null) {
             throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to delete an answer");
         }
 
+        // Delete the answer if current user is its owner or the role of user is not nonadmin, in one statement
+        WriteOutcome outcome = answerDao.deleteAnswerIfPermitted(answerId, userSession.getUserId(), !userSession.getRole().equals("nonadmin"));
+
         // Validate if requested answer exist or not
-        if (answerDao.getAnswerByUuid(answerId) == null) {
+        if (outcome == WriteOutcome.NOT_FOUND) {
             throw new AnswerNotFoundException("ANS-001","Entered answer uuid does not exist");
         }
 
         // Validate if current user is the owner of requested answer or the role of user is not nonadmin
-        if(!userAuthEntity.getUser().getUuid().equals(answerDao.getAnswerByUuid(answerId).getUser().getUuid())){
-            if (userAuthEntity.getUser().getRole().equals("nonadmin")) {
-                throw new AuthorizationFailedException("ATHR-003", "Only the answer owner or admin can delete the answer");
-            }
+        if (outcome == WriteOutcome.NOT_PERMITTED) {
+            throw new AuthorizationFailedException("ATHR-003", "Only the answer owner or admin can delete the answer");
         }
-
-        answerDao.userAnswerDelete(answerId);
     }
 
-    @Transactional(propagation = Propagation.REQUIRED)
-    public List<AnswerEntity> getAllAnswersToQuestion(final String questionId, final String authorization) throws AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
-
-        // Validate if user is signed in or not
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        }
-
-        // Validate if user has signed out
-        if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to get the answers");
-        }
+    /*
+        This method returns one page of the answers to a question, newest first
+        @param cursor next cursor of the previous page, or null for the first page
+        @param limit requested page size, or null for the default
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public Page<AnswerSummary> getAllAnswersToQuestion(final String questionId, final String authorization, final String cursor, final Integer limit) throws AuthorizationFailedException, InvalidQuestionException {
+        accessTokenValidator.validateForRead(authorization, "User is signed out.Sign in first to get the answers");
 
         // Validate if requested question exist or not
         if (questionDao.getQuestionByUuid(questionId) == null) {
             throw new InvalidQuestionException("QUES-001", "The question with entered uuid whose details are to be seen does not exist");
         }
 
-        return answerDao.getAllAnswersToQuestion(questionId);
+        return answerDao.getAllAnswersToQuestion(questionId, PageCursor.decode(cursor), pageLimitResolver.resolve(limit));
     }
 }
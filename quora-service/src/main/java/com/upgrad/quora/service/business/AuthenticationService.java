@@ -7,11 +7,10 @@ import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthenticationFailedException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.ZonedDateTime;
-import java.util.UUID;
 @Service
 public class AuthenticationService {
 
@@ -21,34 +20,45 @@ public class AuthenticationService {
     @Autowired
     private PasswordCryptographyProvider passwordCryptographyProvider;
 
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     /*
     This helps to authenticate user
     @Param username from user
     @Param password from user
     @return authenticate as     User Entity
     @Throws AuthenticationFailedException if user authentication fails
+    The user is read and the token saved in two short transactions, so that no database connection is held
+    while the password waits for the hashing pool
      */
 
-    @Transactional(propagation = Propagation.REQUIRED)
     public UserAuthEntity authenticate (final String username ,final String password) throws AuthenticationFailedException {
 
-        UserEntity userEntity = userDao.getUserByUserName(username);
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        UserEntity userEntity = transaction.execute(status -> userDao.getUserByUserName(username));
         if(userEntity == null) {
             throw new AuthenticationFailedException("ATH-001", "This username does not exist");
         }
 
         final String encryptedPassword = passwordCryptographyProvider.encrypt(password ,userEntity.getSalt());
         if(encryptedPassword.equals(userEntity.getPassword())){
-            JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(encryptedPassword);
+            JwtTokenProvider jwtTokenProvider = jwtKeyRing.getSigningProvider();
             UserAuthEntity userAuthToken = new UserAuthEntity();
-            userAuthToken.setUuid(UUID.randomUUID().toString());
+            userAuthToken.setUuid(idGenerator.generate());
             userAuthToken.setUser(userEntity);
             final ZonedDateTime now = ZonedDateTime.now();
             final ZonedDateTime expiresAt = now.plusHours(8);
             userAuthToken.setAccessToken(jwtTokenProvider.generateToken(userEntity.getUuid(), now, expiresAt));
             userAuthToken.setLoginAt(now);
             userAuthToken.setExpiresAt(expiresAt);
-            userDao.createAuthToken(userAuthToken);
+            transaction.execute(status -> userDao.createAuthToken(userAuthToken));
 
             return userAuthToken;
         }
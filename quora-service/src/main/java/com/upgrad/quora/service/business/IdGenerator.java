@@ -0,0 +1,82 @@
+package com.upgrad.quora.service.business;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the uuid of every new user, session, question and answer.
+ * In "time-ordered" mode (the default) ids are version 7 UUIDs: 48 bits of Unix milliseconds, a 12 bit counter and 62 random bits.
+ * New rows then land at the right edge of the uuid indexes instead of on random pages. The random bits come from a
+ * SecureRandom of the calling thread, since session and user uuids must not be guessable, so no call waits on a shared one.
+ * The millisecond and counter come from one AtomicLong advanced by compare-and-set, so ids from this generator
+ * strictly increase even when the clock stands still or goes back; a counter overflow borrows the next millisecond.
+ * In "random" mode ids are the version 4 UUIDs of UUID.randomUUID(). Any other quora.id.generator fails the startup.
+ */
+@Component
+public class IdGenerator {
+
+    public static final String TIME_ORDERED = "time-ordered";
+
+    public static final String RANDOM = "random";
+
+    private static final int COUNTER_BITS = 12;
+
+    private static final ThreadLocal<SecureRandom> RANDOM_BITS = ThreadLocal.withInitial(SecureRandom::new);
+
+    @Value("${quora.id.generator:" + TIME_ORDERED + "}")
+    private String strategy;
+
+    // Unix milliseconds shifted left by COUNTER_BITS, plus the counter within that millisecond
+    private final AtomicLong lastTick = new AtomicLong();
+
+    public IdGenerator() {
+        this(TIME_ORDERED);
+    }
+
+    /**
+     * @param strategy "time-ordered" or "random", used when the generator is created outside Spring
+     */
+    public IdGenerator(final String strategy) {
+        this.strategy = strategy;
+        validate();
+    }
+
+    @PostConstruct
+    public void validate() {
+        if (!TIME_ORDERED.equalsIgnoreCase(strategy) && !RANDOM.equalsIgnoreCase(strategy)) {
+            throw new IllegalStateException("quora.id.generator must be " + TIME_ORDERED + " or " + RANDOM + ", not " + strategy);
+        }
+    }
+
+    /**
+     * @return a new id in its string form
+     */
+    public String generate() {
+        return RANDOM.equalsIgnoreCase(strategy) ? UUID.randomUUID().toString() : timeOrdered().toString();
+    }
+
+    /**
+     * @return a new version 7 UUID, greater than every one this generator returned before
+     */
+    public UUID timeOrdered() {
+        final long now = System.currentTimeMillis() << COUNTER_BITS;
+        long last;
+        long tick;
+        do {
+            last = lastTick.get();
+            tick = Math.max(now, last + 1);
+        } while (!lastTick.compareAndSet(last, tick));
+
+        final long millis = tick >>> COUNTER_BITS;
+        final long counter = tick & ((1L << COUNTER_BITS) - 1);
+        final long mostSigBits = (millis << 16) | (0x7L << COUNTER_BITS) | counter;
+        final long leastSigBits = (RANDOM_BITS.get().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Holds the server-side keys used to sign and verify JWT access tokens.
+ * Keys are configured as "keyId=secret" pairs separated by commas, for example "k1=first-secret,k2=second-secret".
+ * New tokens are signed with the active key, while tokens signed with any other configured key still verify,
+ * which allows keys to be rotated without signing everybody out.
+ */
+@Component
+public class JwtKeyRing {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    @Value("${quora.auth.jwt.keys:}")
+    private String keys;
+
+    @Value("${quora.auth.jwt.active-key-id:}")
+    private String activeKeyId;
+
+    private final Map<String, JwtTokenProvider> providers = new HashMap<String, JwtTokenProvider>();
+
+    private JwtTokenProvider signingProvider;
+
+    @PostConstruct
+    public void init() {
+        for (final String key : keys.split(",")) {
+            final int separator = key.indexOf('=');
+            if (separator > 0) {
+                final String keyId = key.substring(0, separator).trim();
+                providers.put(keyId, new JwtTokenProvider(keyId, key.substring(separator + 1).trim()));
+            }
+        }
+
+        if (providers.isEmpty()) {
+            // Without configured keys tokens only verify on this instance until it is restarted
+            LOGGER.warn("No JWT signing keys configured under quora.auth.jwt.keys, using a random key");
+            final byte[] secret = new byte[64];
+            new SecureRandom().nextBytes(secret);
+            final String keyId = UUID.randomUUID().toString();
+            providers.put(keyId, new JwtTokenProvider(keyId, Base64.getEncoder().encodeToString(secret)));
+            activeKeyId = keyId;
+        }
+
+        if (activeKeyId.isEmpty() && providers.size() == 1) {
+            activeKeyId = providers.keySet().iterator().next();
+        }
+        signingProvider = providers.get(activeKeyId);
+        if (signingProvider == null) {
+            throw new IllegalStateException("quora.auth.jwt.active-key-id does not match any key in quora.auth.jwt.keys");
+        }
+    }
+
+    /*
+     * Returns the provider which signs new access tokens with the active key.
+     */
+    public JwtTokenProvider getSigningProvider() {
+        return signingProvider;
+    }
+
+    /*
+     * Verifies the access token against the key named in its header.
+     * @return uuid of the user the token was issued to, or null if the token is malformed, signed with an unknown key or fails verification
+     */
+    public String verifyToken(final String accessToken) {
+        final String keyId;
+        try {
+            keyId = JWT.decode(accessToken).getKeyId();
+        } catch (JWTDecodeException e) {
+            return null;
+        }
+
+        final JwtTokenProvider provider = keyId == null ? null : providers.get(keyId);
+        return provider == null ? null : provider.verifyToken(accessToken);
+    }
+}
@@ -1,38 +1,59 @@
 package com.upgrad.quora.service.business;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.upgrad.quora.service.common.GenericErrorCode;
 import com.upgrad.quora.service.common.UnexpectedException;
 
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoField;
 import java.util.Date;
 import java.util.UUID;
 
 /**
  * This class is used in the project to provide JWT token after successful authentication
+ * and to verify the signature, issuer, audience and expiry of a JWT token without a database lookup.
  */
 public class JwtTokenProvider {
     private static final String TOKEN_ISSUER = "https://quora.io";
+    private static final String TOKEN_AUDIENCE = "quora-api";
+
+    private final String keyId;
 
     private final Algorithm algorithm;
 
+    private final JWTVerifier verifier;
+
     /**
      * A constructor for JwtTokenProvider class which receives user password as an argument to be used in the signature part of JWT access token.
      */
     public JwtTokenProvider(final String secret) {
+        this(null, secret);
+    }
+
+    /**
+     * A constructor for JwtTokenProvider class which receives the id and the secret of a server-side signing key.
+     * The key id is written in the header of every generated token so that the key can be found again during verification.
+     */
+    public JwtTokenProvider(final String keyId, final String secret) {
+        this.keyId = keyId;
         try {
             algorithm = Algorithm.HMAC512(secret);
         } catch (IllegalArgumentException e) {
             throw new UnexpectedException(GenericErrorCode.GEN_001);
         }
+        verifier = JWT.require(algorithm).withIssuer(TOKEN_ISSUER).withAudience(TOKEN_AUDIENCE).build();
     }
 
+    public String getKeyId() {
+        return keyId;
+    }
 
     /**
      * This method receives uuid of the user, current time and expiry time of the access token.
      * This information is stored in the payload of the JWT token and the JWT token is returned by this method.
+     * A random token id makes every token unique, even for two signins of a user within the same second.
      */
     /**
      * @param userUuid        - uuid of the user
@@ -42,13 +63,30 @@ public class JwtTokenProvider {
      */
     public String generateToken(final String userUuid, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
 
-        final Date issuedAt = new Date(issuedDateTime.getLong(ChronoField.INSTANT_SECONDS));
-        final Date expiresAt = new Date(expiresDateTime.getLong(ChronoField.INSTANT_SECONDS));
+        final Date issuedAt = Date.from(issuedDateTime.toInstant());
+        final Date expiresAt = Date.from(expiresDateTime.toInstant());
 
         return JWT.create().withIssuer(TOKEN_ISSUER) //
-                .withKeyId(UUID.randomUUID().toString())
-                .withAudience(userUuid) //
+                .withKeyId(keyId != null ? keyId : UUID.randomUUID().toString())
+                .withAudience(TOKEN_AUDIENCE) //
+                .withSubject(userUuid) //
+                .withJWTId(UUID.randomUUID().toString()) //
                 .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(algorithm);
     }
 
+    /**
+     * This method checks the signature, issuer, audience and expiry of the JWT token.
+     */
+    /**
+     * @param token - JWT token to be verified
+     * @return - uuid of the user the token was issued to, or null if the token fails verification
+     */
+    public String verifyToken(final String token) {
+        try {
+            return verifier.verify(token).getSubject();
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,28 @@
+package com.upgrad.quora.service.business;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the page size requested by a client against the configured default and cap.
+ */
+@Component
+public class PageLimitResolver {
+
+    @Value("${quora.pagination.default-limit:20}")
+    private int defaultLimit;
+
+    @Value("${quora.pagination.max-limit:100}")
+    private int maxLimit;
+
+    /*
+     * @param limit page size requested by the client, or null to use the default
+     * @return the page size, at least 1 and at most quora.pagination.max-limit
+     */
+    public int resolve(final Integer limit) {
+        if (limit == null) {
+            return Math.min(defaultLimit, maxLimit);
+        }
+        return Math.max(1, Math.min(limit, maxLimit));
+    }
+}
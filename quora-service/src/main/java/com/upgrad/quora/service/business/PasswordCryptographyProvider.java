@@ -6,13 +6,37 @@ import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.UnexpectedException;
+import com.upgrad.quora.service.common.WorkerPoolStatistics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 
+/**
+ * Hashes passwords with PBKDF2 on a dedicated, bounded pool of worker threads.
+ * PBKDF2 is deliberately CPU heavy, so running it on the request threads lets a burst of sign ins starve every other endpoint.
+ * At most quora.password-hashing.pool-size hashes run at once and at most quora.password-hashing.queue-capacity wait for a worker;
+ * any further request is rejected straight away with GEN-002, which the API maps to 503 Service Unavailable.
+ */
 @Component
 public class PasswordCryptographyProvider {
 
@@ -21,6 +45,69 @@ public class PasswordCryptographyProvider {
     private static int HASHING_KEY_LENGTH = 64;
     private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
+    // SecretKeyFactory is not thread safe, so every worker keeps its own instance instead of looking one up per hash
+    private static final ThreadLocal<SecretKeyFactory> SECRET_KEY_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    @Value("${quora.password-hashing.pool-size:0}")
+    private int poolSize;
+
+    @Value("${quora.password-hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder totalQueueWaitNanos = new LongAdder();
+
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+    private final LongAdder totalHashNanos = new LongAdder();
+
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    public PasswordCryptographyProvider() {
+    }
+
+    /**
+     * A constructor for using the provider outside the Spring container, for example in benchmarks.
+     * init() must be called before the first hash.
+     *
+     * @param poolSize      number of hashing workers, 0 for one per available processor.
+     * @param queueCapacity number of hashes which may wait for a worker.
+     */
+    public PasswordCryptographyProvider(final int poolSize, final int queueCapacity) {
+        this.poolSize = poolSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @PostConstruct
+    public void init() {
+        // By default one worker per core, as a hash keeps a core busy for its whole duration
+        final int workers = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        final BlockingQueue<Runnable> queue = queueCapacity > 0
+                ? new ArrayBlockingQueue<Runnable>(queueCapacity) : new SynchronousQueue<Runnable>();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, queue, runnable -> {
+            final Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
     /**
      * This method generates Salt and hashed Password
      *
@@ -29,7 +116,7 @@ public class PasswordCryptographyProvider {
      */
     public String[] encrypt(final String password) {
         byte[] salt = generateSaltBytes();
-        byte[] hashedPassword = hashPassword(password.toCharArray(), salt);
+        byte[] hashedPassword = submit(password.toCharArray(), salt);
         return new String[]{getBase64EncodedBytesAsString(salt), bytesToHex(hashedPassword)};
     }
 
@@ -41,8 +128,69 @@ public class PasswordCryptographyProvider {
      * @param salt     byte array.
      * @return byte array of hashed password.
      */
-    public static String encrypt(final String password, String salt) {
-        return bytesToHex(hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt)));
+    public String encrypt(final String password, String salt) {
+        return bytesToHex(submit(password.toCharArray(), getBase64DecodedStringAsBytes(salt)));
+    }
+
+    /**
+     * This method returns the current counters of the hashing pool.
+     *
+     * @return queue depth, rejections, queue wait and hash time of the hashing pool.
+     */
+    public WorkerPoolStatistics getStatistics() {
+        return new WorkerPoolStatistics(executor.getMaximumPoolSize(), executor.getActiveCount(),
+                executor.getQueue().size(), queueCapacity, completed.sum(), rejected.sum(),
+                TimeUnit.NANOSECONDS.toMicros(totalQueueWaitNanos.sum()), TimeUnit.NANOSECONDS.toMicros(maxQueueWaitNanos.get()),
+                TimeUnit.NANOSECONDS.toMicros(totalHashNanos.sum()), TimeUnit.NANOSECONDS.toMicros(maxHashNanos.get()));
+    }
+
+    /**
+     * This method hashes the password on the hashing pool and waits for the result.
+     *
+     * @param password char array.
+     * @param salt     byte array.
+     * @return byte array of hashed password.
+     * @throws UnexpectedException with GEN-002 if the pool and its queue are full.
+     */
+    private byte[] submit(final char[] password, final byte[] salt) {
+        final long submittedAt = System.nanoTime();
+        final Callable<byte[]> task = () -> {
+            final long startedAt = System.nanoTime();
+            try {
+                return hashPassword(password, salt);
+            } finally {
+                final long finishedAt = System.nanoTime();
+                record(totalQueueWaitNanos, maxQueueWaitNanos, startedAt - submittedAt);
+                record(totalHashNanos, maxHashNanos, finishedAt - startedAt);
+                completed.increment();
+            }
+        };
+
+        final Future<byte[]> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new UnexpectedException(GenericErrorCode.GEN_002, e);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e.getCause());
+        }
+    }
+
+    private static void record(final LongAdder total, final AtomicLong max, final long nanos) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
     }
 
     /**
@@ -66,12 +214,12 @@ public class PasswordCryptographyProvider {
      */
     private static byte[] hashPassword(final char[] password, final byte[] salt) {
         try {
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
+            SecretKeyFactory skf = SECRET_KEY_FACTORY.get();
             PBEKeySpec spec = new PBEKeySpec(password, salt, HASHING_ITERATIONS, HASHING_KEY_LENGTH);
             SecretKey key = skf.generateSecret(spec);
             byte[] res = key.getEncoded();
             return res;
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+        } catch (InvalidKeySpecException e) {
             throw new RuntimeException(e);
         }
     }
@@ -1,29 +1,64 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.common.WriteOutcome;
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.Page;
+import com.upgrad.quora.service.common.PageCursor;
+import com.upgrad.quora.service.common.RowHandler;
+import com.upgrad.quora.service.common.UnexpectedException;
 import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.dto.QuestionImportResult;
+import com.upgrad.quora.service.dto.QuestionSummary;
+import com.upgrad.quora.service.dto.UserSession;
 import com.upgrad.quora.service.entity.QuestionEntity;
-import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.EditConflictException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 @Service
 public class QuestionBusinessService {
 
+    // Length of the QUESTION.content column
+    private static final int MAX_CONTENT_LENGTH = 500;
+
     @Autowired
     private QuestionDao questionDao;
 
     @Autowired
     private UserDao userDao;
 
+    @Autowired
+    private AccessTokenValidator accessTokenValidator;
+
+    @Autowired
+    private PageLimitResolver pageLimitResolver;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Value("${quora.streaming.fetch-size:500}")
+    private int streamingFetchSize;
+
+    @Value("${quora.bulk-import.batch-size:50}")
+    private int importBatchSize;
+
+    @Value("${quora.bulk-import.max-items:10000}")
+    private int importMaxItems;
+
     /*
       This method first validate the user calling the validate method is UserDao
       than this method stores the question in database if user is validated successfully
@@ -35,44 +70,113 @@ public class QuestionBusinessService {
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public QuestionEntity createQuestion(QuestionEntity questionEntity, final String authorizationToken) throws AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorizationToken);
+        UserSession userSession = userDao.getUserSession(authorizationToken);
 
         // Validate if user is signed in or not
-        if (userAuthEntity == null) {
+        if (userSession == null) {
             throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
         }
 
         // Validate if user has signed out
-        if (userAuthEntity.getLogoutAt() != null) {
+        if (userSession.getLogoutAt() != null) {
             throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to post a question");
         }
 
-        questionEntity.setUser(userAuthEntity.getUser());
+        questionEntity.setUser(userDao.getUserReference(userSession.getUserId()));
         return questionDao.createQuestion(questionEntity);
     }
 
     /*
-      This method pulls all the question details
-      If the token is not valid, throws an Authorization failure
-      @param authorization holds  access token for authenticating the user
-     * @return All the Questions added in the application present in the Database
+      This method imports many questions for the signed in user in one transaction
+      The contents are read one at a time while the request body is parsed, and saved in batches of quora.bulk-import.batch-size
+      Items without content or with content longer than 500 characters are rejected and the rest are still saved
+      @param authorizationToken holds  token for authenticating the user
+     * @param contents the content of every question to import, in order
+     * @return the result of every item, in order
      * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     * @throws UnexpectedException GEN-005 if there are more than quora.bulk-import.max-items items, nothing is saved then
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public List<QuestionEntity> getAllQuestions(final String authorization) throws AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
+    public List<QuestionImportResult> importQuestions(final String authorizationToken, final Iterator<String> contents) throws AuthorizationFailedException {
+        UserSession userSession = userDao.getUserSession(authorizationToken);
 
         // Validate if user is signed in or not
-        if (userAuthEntity == null) {
+        if (userSession == null) {
             throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
         }
 
         // Validate if user has signed out
-        if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to get all questions");
+        if (userSession.getLogoutAt() != null) {
+            throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to import questions");
         }
 
-        return questionDao.getAllQuestions();
+        final UserEntity user = userDao.getUserReference(userSession.getUserId());
+        final List<QuestionImportResult> results = new ArrayList<QuestionImportResult>();
+        final List<QuestionEntity> batch = new ArrayList<QuestionEntity>(importBatchSize);
+        while (contents.hasNext()) {
+            final int index = results.size();
+            if (index == importMaxItems) {
+                throw new UnexpectedException(GenericErrorCode.GEN_005, String.valueOf(importMaxItems));
+            }
+
+            final String content = contents.next();
+            if (content == null || content.trim().isEmpty()) {
+                results.add(QuestionImportResult.rejected(index, "Question content is missing"));
+                continue;
+            }
+            if (content.length() > MAX_CONTENT_LENGTH) {
+                results.add(QuestionImportResult.rejected(index, "Question content is longer than " + MAX_CONTENT_LENGTH + " characters"));
+                continue;
+            }
+
+            final QuestionEntity questionEntity = new QuestionEntity();
+            questionEntity.setUuid(idGenerator.generate());
+            questionEntity.setContent(content);
+            questionEntity.setDate(ZonedDateTime.now());
+            questionEntity.setUser(user);
+            batch.add(questionEntity);
+            results.add(QuestionImportResult.created(index, questionEntity.getUuid()));
+
+            if (batch.size() == importBatchSize) {
+                questionDao.createQuestionBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            questionDao.createQuestionBatch(batch);
+        }
+        return results;
+    }
+
+    /*
+      This method pulls one page of the question details, newest first
+      If the token is not valid, throws an Authorization failure
+      @param authorization holds  access token for authenticating the user
+     * @param cursor next cursor of the previous page, or null for the first page
+     * @param limit requested page size, or null for the default
+     * @return A page of the Questions added in the application present in the Database
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public Page<QuestionSummary> getAllQuestions(final String authorization, final String cursor, final Integer limit) throws AuthorizationFailedException {
+        accessTokenValidator.validateForRead(authorization, "User is signed out.Sign in first to get all questions");
+
+        return questionDao.getAllQuestions(PageCursor.decode(cursor), pageLimitResolver.resolve(limit));
+    }
+
+    /*
+      This method streams all the question details, newest first, to the handler
+      The access token is validated before the first question is handed over
+      @param authorization holds  access token for authenticating the user
+     * @param handler receives the questions one at a time while they are read from the Database
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     * @throws IOException If the handler fails to write a question
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public void streamAllQuestions(final String authorization, final RowHandler<QuestionSummary> handler) throws AuthorizationFailedException, IOException {
+        accessTokenValidator.validateForRead(authorization, "User is signed out.Sign in first to get all questions");
+
+        questionDao.scrollAllQuestions(streamingFetchSize, handler);
     }
 
     /*
@@ -80,37 +184,38 @@ public class QuestionBusinessService {
       checks for all the conditions and provides necessary response messages
       */
     @Transactional(propagation = Propagation.REQUIRED)
-    public QuestionEntity editQuestionContent(final QuestionEntity questionEntity, final String authorizationToken) throws AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorizationToken);
+    public QuestionEntity editQuestionContent(final QuestionEntity questionEntity, final String authorizationToken) throws AuthorizationFailedException, InvalidQuestionException, EditConflictException {
+        UserSession userSession = userDao.getUserSession(authorizationToken);
 
         // Validate if user is signed in or not
-        if (userAuthEntity == null) {
+        if (userSession == null) {
             throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
         }
 
         // Validate if user has signed out
-        if (userAuthEntity.getLogoutAt() != null) {
+        if (userSession.getLogoutAt() != null) {
             throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to edit the question");
         }
 
+        // Update the content if current user is the owner of requested question, in one statement
+        WriteOutcome outcome = questionDao.editQuestionContent(questionEntity, userSession.getUserId());
+
         // Validate if requested question exist or not
-        QuestionEntity existingQuestionEntity = questionDao.getQuestionByUuid(questionEntity.getUuid());
-        if (existingQuestionEntity == null) {
+        if (outcome == WriteOutcome.NOT_FOUND) {
             throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
         }
 
         // Validate if current user is the owner of requested question
-        UserEntity currentUser = userAuthEntity.getUser();
-        UserEntity questionOwner = questionDao.getQuestionByUuid(questionEntity.getUuid()).getUser();
-        if (currentUser.getId() != questionOwner.getId()) {
+        if (outcome == WriteOutcome.NOT_PERMITTED) {
             throw new AuthorizationFailedException("ATHR-003", "Only the question owner can edit the question");
         }
 
-        questionEntity.setId(existingQuestionEntity.getId());
-        questionEntity.setUser(existingQuestionEntity.getUser());
-        questionEntity.setDate(existingQuestionEntity.getDate());
+        // Validate if requested question still has the version the user edited
+        if (outcome == WriteOutcome.CONFLICT) {
+            throw new EditConflictException("QUES-002", "The question was edited since it was read, read it again before editing");
+        }
 
-        return questionDao.editQuestionContent(questionEntity);
+        return questionEntity;
     }
 
     /*
@@ -119,31 +224,30 @@ public class QuestionBusinessService {
     */
     @Transactional(propagation = Propagation.REQUIRED)
     public void userQuestionDelete(final String questionId, final String authorization) throws InvalidQuestionException, AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
+        UserSession userSession = userDao.getUserSession(authorization);
 
         // Validate if user is signed in or not
-        if (userAuthEntity == null) {
+        if (userSession == null) {
             throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
         }
 
         // Validate if user has signed out
-        if (userAuthEntity.getLogoutAt() != null) {
+        if (userSession.getLogoutAt() != null) {
             throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to delete a question");
         }
 
+        // Delete the question if current user is its owner or the role of user is not nonadmin, in one statement
+        WriteOutcome outcome = questionDao.deleteQuestionIfPermitted(questionId, userSession.getUserId(), !userSession.getRole().equals("nonadmin"));
+
         // Validate if requested question exist or not
-        if (questionDao.getQuestionByUuid(questionId) == null) {
+        if (outcome == WriteOutcome.NOT_FOUND) {
             throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
         }
 
         // Validate if current user is the owner of requested question or the role of user is not nonadmin
-        if (!userAuthEntity.getUser().getUuid().equals(questionDao.getQuestionByUuid(questionId).getUser().getUuid())) {
-            if (userAuthEntity.getUser().getRole().equals("nonadmin")) {
-                throw new AuthorizationFailedException("ATHR-003", "Oly the question owner or admin can delete the question");
-            }
+        if (outcome == WriteOutcome.NOT_PERMITTED) {
+            throw new AuthorizationFailedException("ATHR-003", "Oly the question owner or admin can delete the question");
         }
-
-        questionDao.userQuestionDelete(questionId);
     }
 
     /*
@@ -152,27 +256,18 @@ public class QuestionBusinessService {
         If token is invalid or user is logged out then appropriate error message
       is thrown back to the client
       Same applies when the userId itself doesn't match with any user in DB
+      The questions are returned one page at a time, newest first
      */
 
-    @Transactional(propagation = Propagation.REQUIRED)
-    public List<QuestionEntity> getAllQuestionsByUser(final String userId, final String authorizationToken) throws AuthorizationFailedException, UserNotFoundException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorizationToken);
-
-        // Validate if user is signed in or not
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        }
-
-        // Validate if user has signed out
-        if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to get all questions posted by a specific user");
-        }
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public Page<QuestionSummary> getAllQuestionsByUser(final String userId, final String authorizationToken, final String cursor, final Integer limit) throws AuthorizationFailedException, UserNotFoundException {
+        accessTokenValidator.validateForRead(authorizationToken, "User is signed out.Sign in first to get all questions posted by a specific user");
 
         // Validate if requested user exist or not
         if (userDao.getUserByUuid(userId) == null) {
             throw new UserNotFoundException("USR-001", "User with entered uuid whose question details are to be seen does not exist");
         }
 
-        return questionDao.getAllQuestionsByUser(userId);
+        return questionDao.getAllQuestionsByUser(userId, PageCursor.decode(cursor), pageLimitResolver.resolve(limit));
     }
 }
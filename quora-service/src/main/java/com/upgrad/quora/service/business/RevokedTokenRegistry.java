@@ -0,0 +1,227 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.RevokedTokenEntity;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory record of access tokens which were signed out before they expired.
+ * It lets the stateless token check keep the sign-out guarantee without reading USER_AUTH on every request.
+ *
+ * Tokens are held by their SHA-256 digest, the only form REVOKED_TOKEN keeps them in, and grouped in time buckets by
+ * their EXPIRES_AT. Each bucket has a Bloom filter, which answers most lookups for tokens that were never revoked,
+ * backed by an exact set which rules out the filter's false positives.
+ * A bucket is dropped as a whole once every token in it has expired.
+ *
+ * Sign-outs on this instance are recorded once their transaction commits. Sign-outs on other instances are picked up
+ * from USER_AUTH every quora.auth.revocation.sync-interval-ms milliseconds, and so are the tokens of deleted users
+ * from REVOKED_TOKEN, since their USER_AUTH rows are deleted with them. The rows of REVOKED_TOKEN whose tokens have
+ * expired are deleted on the same schedule.
+ */
+@Component
+public class RevokedTokenRegistry {
+
+    // Sign-outs committed shortly before the previous sync may not have been visible to it
+    private static final long SYNC_OVERLAP_SECONDS = 60;
+
+    @Value("${quora.auth.mode:" + AccessTokenValidator.DATABASE_MODE + "}")
+    private String mode;
+
+    @Value("${quora.auth.revocation.bucket-minutes:60}")
+    private long bucketMinutes;
+
+    @Value("${quora.auth.revocation.expected-tokens-per-bucket:10000}")
+    private int expectedTokensPerBucket;
+
+    @Value("${quora.auth.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Autowired
+    private UserDao userDao;
+
+    private final ConcurrentSkipListMap<Long, Bucket> buckets = new ConcurrentSkipListMap<Long, Bucket>();
+
+    private volatile ZonedDateTime lastSyncAt;
+
+    /*
+     * Records the access token as signed out once the current transaction commits, so that a sign-out which is rolled
+     * back leaves the token valid. Nothing is recorded unless quora.auth.mode is stateless, the database mode reads
+     * the sign-out from USER_AUTH instead.
+     */
+    public void revokeAfterCommit(final byte[] accessTokenDigest, final ZonedDateTime expiresAt) {
+        if (!isStateless()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            revoke(accessTokenDigest, expiresAt);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                revoke(accessTokenDigest, expiresAt);
+            }
+        });
+    }
+
+    /*
+     * Records the access token with the given SHA-256 digest as signed out until it expires.
+     */
+    public void revoke(final byte[] accessTokenDigest, final ZonedDateTime expiresAt) {
+        final long expiresAtMillis = expiresAt.toInstant().toEpochMilli();
+        final long now = System.currentTimeMillis();
+        if (expiresAtMillis <= now) {
+            return;
+        }
+
+        purgeExpiredBuckets(now);
+        final long bucketMillis = TimeUnit.MINUTES.toMillis(bucketMinutes);
+        buckets.computeIfAbsent(expiresAtMillis / bucketMillis, key -> new Bucket((key + 1) * bucketMillis, expectedTokensPerBucket, falsePositiveRate))
+                .add(ByteBuffer.wrap(accessTokenDigest));
+    }
+
+    /*
+     * Returns true if the access token has been signed out and has not yet expired.
+     */
+    public boolean isRevoked(final String accessToken) {
+        final long now = System.currentTimeMillis();
+        final long bucketMillis = TimeUnit.MINUTES.toMillis(bucketMinutes);
+        final ByteBuffer digest = ByteBuffer.wrap(UserDao.digestAccessToken(accessToken));
+        final int hash1 = digest.getInt(0);
+        final int hash2 = digest.getInt(4);
+
+        for (final Bucket bucket : buckets.tailMap(now / bucketMillis, true).values()) {
+            if (bucket.mightContain(hash1, hash2) && bucket.contains(digest)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Loads the tokens signed out or revoked on any instance since the previous sync.
+     * The first sync, when the application starts, loads every signed out token which has not expired yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${quora.auth.revocation.sync-interval-ms:30000}")
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public void syncFromDatabase() {
+        if (!isStateless()) {
+            return;
+        }
+
+        final ZonedDateTime now = ZonedDateTime.now();
+        final ZonedDateTime since = lastSyncAt == null ? null : lastSyncAt.minusSeconds(SYNC_OVERLAP_SECONDS);
+        for (final UserAuthEntity userAuthEntity : userDao.getSignedOutUserAuthTokens(since, now)) {
+            revoke(userAuthEntity.getAccessTokenDigest(), userAuthEntity.getExpiresAt());
+        }
+        for (final RevokedTokenEntity revokedTokenEntity : userDao.getRevokedTokens(since, now)) {
+            revoke(revokedTokenEntity.getAccessTokenDigest(), revokedTokenEntity.getExpiresAt());
+        }
+        lastSyncAt = now;
+    }
+
+    /*
+     * Deletes the rows of REVOKED_TOKEN whose tokens have expired. Runs in either mode, the deletion of a user records
+     * the revocations of its tokens for the stateless instances whatever the mode of the instance which deleted it.
+     * The first deletion waits one interval, so that it does not compete with the start-up work of the application.
+     */
+    @Scheduled(fixedDelayString = "${quora.auth.revocation.sync-interval-ms:30000}",
+            initialDelayString = "${quora.auth.revocation.sync-interval-ms:30000}")
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void deleteExpiredRevocations() {
+        userDao.deleteExpiredRevokedTokens(ZonedDateTime.now());
+    }
+
+    private boolean isStateless() {
+        return AccessTokenValidator.STATELESS_MODE.equalsIgnoreCase(mode);
+    }
+
+    private void purgeExpiredBuckets(final long now) {
+        final ConcurrentNavigableMap<Long, Bucket> expired = buckets.headMap(now / TimeUnit.MINUTES.toMillis(bucketMinutes));
+        final Iterator<Map.Entry<Long, Bucket>> iterator = expired.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().endMillis <= now) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class Bucket {
+
+        private final long endMillis;
+
+        private final AtomicLongArray bits;
+
+        private final int bitCount;
+
+        private final int hashCount;
+
+        private final Set<ByteBuffer> digests = ConcurrentHashMap.newKeySet();
+
+        private Bucket(final long endMillis, final int expectedTokens, final double falsePositiveRate) {
+            this.endMillis = endMillis;
+            final double ln2 = Math.log(2);
+            final long optimalBits = (long) Math.ceil(-expectedTokens * Math.log(falsePositiveRate) / (ln2 * ln2));
+            this.bitCount = (int) Math.max(64, Math.min(optimalBits, Integer.MAX_VALUE - 63));
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedTokens * ln2));
+            this.bits = new AtomicLongArray((bitCount + 63) / 64);
+        }
+
+        // The digest is SHA-256 output, so two of its words serve as the independent hashes of the double hashing
+        private void add(final ByteBuffer digest) {
+            // The exact set is written first, so a reader which sees the filter bits also finds the token
+            digests.add(digest);
+            final int hash1 = digest.getInt(0);
+            final int hash2 = digest.getInt(4);
+            for (int i = 0; i < hashCount; i++) {
+                final int bit = index(hash1, hash2, i);
+                final int word = bit >>> 6;
+                final long mask = 1L << (bit & 63);
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        private boolean mightContain(final int hash1, final int hash2) {
+            for (int i = 0; i < hashCount; i++) {
+                final int bit = index(hash1, hash2, i);
+                if ((bits.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean contains(final ByteBuffer digest) {
+            return digests.contains(digest);
+        }
+
+        private int index(final int hash1, final int hash2, final int i) {
+            return (int) (((hash1 + (long) i * hash2) & Long.MAX_VALUE) % bitCount);
+        }
+    }
+}
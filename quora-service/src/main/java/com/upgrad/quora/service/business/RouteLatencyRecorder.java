@@ -0,0 +1,111 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.RouteLatencyStatistics;
+import com.upgrad.quora.service.common.SlidingLatencyHistogram;
+import com.upgrad.quora.service.common.SqlStatistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the latency of the api per route and status: counters since startup and a histogram over a sliding window
+ * of window-slices slices of slice-ms each. Percentiles are corrected for coordinated omission only when
+ * expected-interval-ms is set, which assumes a single closed-loop client sending a request every expected-interval-ms,
+ * such as a load test; production traffic from many clients is recorded as it is.
+ * The SQL work of the requests is added up per route as well.
+ * The web layer records every request with the route it was mapped to.
+ */
+@Component
+public class RouteLatencyRecorder {
+
+    @Value("${quora.request-timing.slice-ms:10000}")
+    private long sliceMillis;
+
+    @Value("${quora.request-timing.window-slices:6}")
+    private int windowSlices;
+
+    // a request slower than this held up the requests behind it, which are added to the percentiles; 0 disables it
+    @Value("${quora.request-timing.expected-interval-ms:0}")
+    private long expectedIntervalMillis;
+
+    // route and status -> their timer
+    private final Map<String, RouteTimer> timers = new ConcurrentHashMap<>();
+
+    /*
+     * @param route HTTP method and path pattern of the request
+     * @param status HTTP status of the response
+     * @param sql the SQL work of the request, null if it was not counted
+     */
+    public void record(final String route, final int status, final long nanos, final SqlStatistics sql) {
+        final long micros = nanos / 1000;
+        final RouteTimer timer = timers.computeIfAbsent(route + " " + status, key -> new RouteTimer(route, status, windowSlices));
+        timer.requests.increment();
+        timer.totalMicros.add(micros);
+        timer.window.recordMicros(micros, expectedIntervalMillis * 1000);
+        if (sql != null) {
+            timer.statements.add(sql.getStatements());
+            timer.maxStatements.accumulateAndGet(sql.getStatements(), Math::max);
+            timer.entityLoads.add(sql.getEntityLoads());
+            timer.flushes.add(sql.getFlushes());
+            timer.jdbcMicros.add(sql.getJdbcMicros());
+        }
+    }
+
+    /*
+     * @return a snapshot per route and status, ordered by route and status
+     */
+    public List<RouteLatencyStatistics> getStatistics() {
+        final long windowSeconds = sliceMillis * windowSlices / 1000;
+        return timers.values().stream()
+                .sorted(Comparator.comparing((RouteTimer timer) -> timer.route).thenComparingInt(timer -> timer.status))
+                .map(timer -> new RouteLatencyStatistics(timer.route, timer.status, timer.requests.sum(), timer.totalMicros.sum(),
+                        windowSeconds, timer.window.getStatistics(),
+                        new SqlStatistics(timer.statements.sum(), timer.entityLoads.sum(), timer.flushes.sum(), timer.jdbcMicros.sum()),
+                        timer.maxStatements.get()))
+                .collect(Collectors.toList());
+    }
+
+    @Scheduled(fixedRateString = "${quora.request-timing.slice-ms:10000}", initialDelayString = "${quora.request-timing.slice-ms:10000}")
+    public void rotate() {
+        for (RouteTimer timer : timers.values()) {
+            timer.window.rotate();
+        }
+    }
+
+    private static class RouteTimer {
+
+        private final String route;
+
+        private final int status;
+
+        private final LongAdder requests = new LongAdder();
+
+        private final LongAdder totalMicros = new LongAdder();
+
+        private final SlidingLatencyHistogram window;
+
+        private final LongAdder statements = new LongAdder();
+
+        private final AtomicLong maxStatements = new AtomicLong();
+
+        private final LongAdder entityLoads = new LongAdder();
+
+        private final LongAdder flushes = new LongAdder();
+
+        private final LongAdder jdbcMicros = new LongAdder();
+
+        private RouteTimer(final String route, final int status, final int windowSlices) {
+            this.route = route;
+            this.status = status;
+            this.window = new SlidingLatencyHistogram(windowSlices);
+        }
+    }
+}
@@ -3,13 +3,16 @@ package com.upgrad.quora.service.business;
 import com.upgrad.quora.service.common.GenericErrorCode;
 import com.upgrad.quora.service.common.UnexpectedException;
 import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.datasource.ReadYourWritesTracker;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.ZonedDateTime;
 import java.util.Base64;
@@ -26,15 +29,33 @@ public class UserBusinessService {
     @Autowired
     private AdminBusinessService adminBusinessService;
 
+    @Autowired
+    private AccessTokenValidator accessTokenValidator;
+
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     /*
        This method  used to create  a new user
        @parameter -UserEntity object from which user is created
        It will return user entity object
        @throws -SignUpRestrictedException if  user is already rgistered with same username or
         email address
+       The password is hashed before the transaction which checks and saves the user begins, so that no database
+       connection is held while it waits for the hashing pool
      */
-    @Transactional(propagation = Propagation.REQUIRED)
     public UserEntity signUp(UserEntity userEntity) throws SignUpRestrictedException {
+        // Encrypt salt & Password
+        String[] encryptedText = passwordCryptographyProvider.encrypt(userEntity.getPassword());
+        userEntity.setSalt(encryptedText[0]);
+        userEntity.setPassword(encryptedText[1]);
+
         return adminBusinessService.createUser(userEntity);
     }
 
@@ -46,26 +67,26 @@ public class UserBusinessService {
         @Param authorization holds the basic access token used for authentication
         @return userAuthTokenEntity that conatins acess token and user UUID
         @throws AuthenticationFailedException if the username doesnot exists or  does not match
+        The user is read and the token saved in two short transactions, so that no database connection is held
+        while the password waits for the hashing pool
      */
 
-    @Transactional(propagation = Propagation.REQUIRED)
     public UserAuthEntity signIn(String authorization) throws AuthenticationFailedException {
         // Used to decode the request header authorization
         try{
-            byte[] decode = Base64.getDecoder().decode(authorization.split("Basic ")[1]);
-            String decodedText = new String(decode);
-            String[] decodedArray = decodedText.split(":");
+            String[] decodedArray = decodeBasicAuthorization(authorization);
             String username = decodedArray[0];
             String password = decodedArray[1];
 
-            UserEntity user = userDao.getUserByUserName(username);
+            final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            UserEntity user = transaction.execute(status -> userDao.getUserByUserName(username));
             if(user == null){
                 throw  new AuthenticationFailedException("ATH-001","This user name does not exists" );
 
             }
             final String encryptedPassword = passwordCryptographyProvider.encrypt(password , user.getSalt());
             if(encryptedPassword.equals(user.getPassword())){
-                JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(encryptedPassword);
+                JwtTokenProvider jwtTokenProvider = jwtKeyRing.getSigningProvider();
                 UserAuthEntity userAuthTokenEntity = new UserAuthEntity();
                 userAuthTokenEntity.setUser(user);
                 final ZonedDateTime now = ZonedDateTime.now();
@@ -74,7 +95,10 @@ public class UserBusinessService {
                 userAuthTokenEntity.setLoginAt(now);
                 userAuthTokenEntity.setExpiresAt(expiresAt);
                 userAuthTokenEntity.setUuid(user.getUuid());
-                return userDao.createAuthToken(userAuthTokenEntity);
+                final UserAuthEntity createdUserAuthEntity = transaction.execute(status -> userDao.createAuthToken(userAuthTokenEntity));
+                // the client reads with the new token, which the replicas may not have yet, once the token is committed
+                readYourWritesTracker.recordWrite(createdUserAuthEntity.getAccessToken());
+                return createdUserAuthEntity;
             }
             else{
                 throw  new AuthenticationFailedException("ATH-002" ,"Password Failed");
@@ -86,6 +110,19 @@ public class UserBusinessService {
 
         }
     }
+    /*
+        Used to decode the "Basic base64(username:password)" authorization header
+        @param authorization holds the basic access token used for authentication
+        @return array with [0] username [1] password
+        @throws ArrayIndexOutOfBoundsException if the header is not in the basic scheme or has no password
+        @throws IllegalArgumentException if the credentials are not valid base64
+     */
+    public static String[] decodeBasicAuthorization(final String authorization) {
+        byte[] decode = Base64.getDecoder().decode(authorization.split("Basic ")[1]);
+        String decodedText = new String(decode);
+        return decodedText.split(":");
+    }
+
     /*
         This is used to sign out user from application
        If it is expired or invalid, then throws back the exception asking the user to sign in
@@ -109,17 +146,9 @@ public class UserBusinessService {
         in the database,If the user has signed out
          @throws UserNotFoundException If the user with uuid does not exist in the database
      */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
     public UserEntity getUser(final String userUuid, final String authorization) throws AuthorizationFailedException, UserNotFoundException {
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
-
-        // Validate if user is signed in or not
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        }
-        // Validate if user has signed out
-        if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to get user details");
-        }
+        accessTokenValidator.validateForRead(authorization, "User is signed out.Sign in first to get user details");
 
         // Validate if requested user exist or not
         UserEntity userEntity = userDao.getUserByUuid(userUuid);
@@ -0,0 +1,51 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Point-in-time snapshot of the connections one caller, a class and method of the application, took from a pool.
+ * Times are reported in microseconds.
+ */
+public class ConnectionCallerStatistics {
+
+    private final String caller;
+
+    private final long connections;
+
+    private final long totalHoldMicros;
+
+    private final long maxHoldMicros;
+
+    private final long leaks;
+
+    public ConnectionCallerStatistics(final String caller, final long connections, final long totalHoldMicros, final long maxHoldMicros,
+                                      final long leaks) {
+        this.caller = caller;
+        this.connections = connections;
+        this.totalHoldMicros = totalHoldMicros;
+        this.maxHoldMicros = maxHoldMicros;
+        this.leaks = leaks;
+    }
+
+    public String getCaller() {
+        return caller;
+    }
+
+    public long getConnections() {
+        return connections;
+    }
+
+    public long getTotalHoldMicros() {
+        return totalHoldMicros;
+    }
+
+    public long getMaxHoldMicros() {
+        return maxHoldMicros;
+    }
+
+    public long getLeaks() {
+        return leaks;
+    }
+
+    public double getAverageHoldMicros() {
+        return connections == 0 ? 0.0 : (double) totalHoldMicros / connections;
+    }
+}
@@ -0,0 +1,108 @@
+package com.upgrad.quora.service.common;
+
+import java.util.List;
+
+/**
+ * Point-in-time snapshot of a database connection pool: its gauges, how long connections took to acquire
+ * and were held, and the callers which held them.
+ */
+public class ConnectionPoolStatistics {
+
+    private final String name;
+
+    private final int activeConnections;
+
+    private final int idleConnections;
+
+    private final int pendingThreads;
+
+    private final int totalConnections;
+
+    private final int maximumPoolSize;
+
+    private final long acquireFailures;
+
+    private final long leaks;
+
+    private final LatencyStatistics acquireTime;
+
+    private final LatencyStatistics holdTime;
+
+    private final List<ConnectionCallerStatistics> callers;
+
+    public ConnectionPoolStatistics(final String name, final int activeConnections, final int idleConnections, final int pendingThreads,
+                                    final int totalConnections, final int maximumPoolSize, final long acquireFailures, final long leaks,
+                                    final LatencyStatistics acquireTime, final LatencyStatistics holdTime,
+                                    final List<ConnectionCallerStatistics> callers) {
+        this.name = name;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.pendingThreads = pendingThreads;
+        this.totalConnections = totalConnections;
+        this.maximumPoolSize = maximumPoolSize;
+        this.acquireFailures = acquireFailures;
+        this.leaks = leaks;
+        this.acquireTime = acquireTime;
+        this.holdTime = holdTime;
+        this.callers = callers;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /*
+     * @return number of threads waiting for a connection
+     */
+    public int getPendingThreads() {
+        return pendingThreads;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    /*
+     * @return number of connection requests which timed out or failed
+     */
+    public long getAcquireFailures() {
+        return acquireFailures;
+    }
+
+    /*
+     * @return number of connections which were held longer than the leak detection threshold
+     */
+    public long getLeaks() {
+        return leaks;
+    }
+
+    public LatencyStatistics getAcquireTime() {
+        return acquireTime;
+    }
+
+    /*
+     * @return time from acquiring a connection to closing it, which is the length of the transaction it served
+     */
+    public LatencyStatistics getHoldTime() {
+        return holdTime;
+    }
+
+    /*
+     * @return the callers which held connections, longest total hold time first
+     */
+    public List<ConnectionCallerStatistics> getCallers() {
+        return callers;
+    }
+}
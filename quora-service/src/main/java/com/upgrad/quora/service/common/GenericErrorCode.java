@@ -10,7 +10,42 @@ public enum GenericErrorCode implements ErrorCode {
      * <b>Cause:</b> This error could have occurred due to undetermined runtime errors.<br>
      * <b>Action: None</b><br>
      */
-    GEN_001("GEN-001", "An unexpected error occurred. Please contact System Administrator");
+    GEN_001("GEN-001", "An unexpected error occurred. Please contact System Administrator"),
+
+    /**
+     * Error message: <b>The server is busy. Please try again later</b><br>
+     * <b>Cause:</b> This error occurs when a bounded worker pool, such as the password hashing pool, has no free capacity.<br>
+     * <b>Action: Retry the request after a short delay</b><br>
+     */
+    GEN_002("GEN-002", "The server is busy. Please try again later"),
+
+    /**
+     * Error message: <b>The page cursor is not valid</b><br>
+     * <b>Cause:</b> This error occurs when the cursor of a paginated list was altered or not issued by this application.<br>
+     * <b>Action: Request the first page again without a cursor</b><br>
+     */
+    GEN_003("GEN-003", "The page cursor is not valid"),
+
+    /**
+     * Error message: <b>The import is not a valid JSON array or NDJSON stream of questions: {0}</b><br>
+     * <b>Cause:</b> This error occurs when the body of a bulk import cannot be parsed. Nothing of the import is saved.<br>
+     * <b>Action: Correct the body and send the whole import again</b><br>
+     */
+    GEN_004("GEN-004", "The import is not a valid JSON array or NDJSON stream of questions: {0}"),
+
+    /**
+     * Error message: <b>The import holds more than {0} questions</b><br>
+     * <b>Cause:</b> This error occurs when a bulk import holds more items than quora.bulk-import.max-items. Nothing of the import is saved.<br>
+     * <b>Action: Split the import into smaller ones</b><br>
+     */
+    GEN_005("GEN-005", "The import holds more than {0} questions"),
+
+    /**
+     * Error message: <b>The since parameter is not an ISO-8601 date and time with offset: {0}</b><br>
+     * <b>Cause:</b> This error occurs when the since parameter of an export cannot be parsed, for example when the offset is missing.<br>
+     * <b>Action: Send the date and time in the form 2018-09-17T00:00:00Z</b><br>
+     */
+    GEN_006("GEN-006", "The since parameter is not an ISO-8601 date and time with offset: {0}");
 
     private static final Map<String, GenericErrorCode> LOOKUP = new HashMap<String, GenericErrorCode>();
 
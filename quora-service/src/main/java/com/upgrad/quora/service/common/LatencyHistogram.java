@@ -0,0 +1,90 @@
+package com.upgrad.quora.service.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in microseconds.
+ * Durations up to 31 µs are counted exactly, longer ones in buckets which split every power of two into 16,
+ * so a percentile read from it is at most 1/16 above the true value. Recording costs a few atomic increments.
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 4;
+
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong totalMicros = new AtomicLong();
+
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(final long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(final long micros) {
+        final long value = Math.max(0, micros);
+        counts.incrementAndGet(bucketIndex(value));
+        totalMicros.addAndGet(value);
+        long max = maxMicros.get();
+        while (value > max && !maxMicros.compareAndSet(max, value)) {
+            max = maxMicros.get();
+        }
+    }
+
+    /*
+     * Records a duration, correcting for coordinated omission: a duration longer than the expected interval between
+     * two measurements held up the ones which should have been taken meanwhile, so these are recorded too,
+     * at the duration less one, two, ... intervals.
+     * @param expectedIntervalMicros expected time between two measurements, 0 records the duration alone
+     */
+    public void recordMicros(final long micros, final long expectedIntervalMicros) {
+        recordMicros(micros);
+        if (expectedIntervalMicros <= 0) {
+            return;
+        }
+        for (long missed = micros - expectedIntervalMicros; missed >= expectedIntervalMicros; missed -= expectedIntervalMicros) {
+            counts.incrementAndGet(bucketIndex(missed));
+            totalMicros.addAndGet(missed);
+        }
+    }
+
+    // Durations recorded while the histogram is reset may be lost
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    public LatencyStatistics getStatistics() {
+        final long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return new LatencyStatistics(snapshot, totalMicros.get(), maxMicros.get());
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // Largest value counted in the bucket
+    static long bucketUpperBound(final int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
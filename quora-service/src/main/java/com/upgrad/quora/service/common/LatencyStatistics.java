@@ -0,0 +1,101 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Point-in-time snapshot of a LatencyHistogram.
+ * Times are reported in microseconds, percentiles as the upper bound of the bucket they fall in.
+ */
+public class LatencyStatistics {
+
+    private final long[] counts;
+
+    private final long count;
+
+    private final long totalMicros;
+
+    private final long maxMicros;
+
+    LatencyStatistics(final long[] counts, final long totalMicros, final long maxMicros) {
+        this.counts = counts;
+        long count = 0;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+        this.count = count;
+        this.totalMicros = totalMicros;
+        this.maxMicros = maxMicros;
+    }
+
+    /*
+     * @param earlier a snapshot of the same histogram taken before this one
+     * @return the durations recorded between the two snapshots, whose maximum is that of the highest bucket used
+     */
+    public LatencyStatistics since(final LatencyStatistics earlier) {
+        final long[] difference = new long[counts.length];
+        long max = 0;
+        for (int i = 0; i < counts.length; i++) {
+            difference[i] = counts[i] - earlier.counts[i];
+            if (difference[i] > 0) {
+                max = Math.min(LatencyHistogram.bucketUpperBound(i), maxMicros);
+            }
+        }
+        return new LatencyStatistics(difference, totalMicros - earlier.totalMicros, max);
+    }
+
+    /*
+     * @return the durations recorded in this snapshot and the other one, of another histogram
+     */
+    public LatencyStatistics plus(final LatencyStatistics other) {
+        final long[] sum = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            sum[i] = counts[i] + other.counts[i];
+        }
+        return new LatencyStatistics(sum, totalMicros + other.totalMicros, Math.max(maxMicros, other.maxMicros));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    public double getAverageMicros() {
+        return count == 0 ? 0.0 : (double) totalMicros / count;
+    }
+
+    /*
+     * @param percentile between 0 and 100
+     * @return the duration in microseconds which percentile percent of the recorded durations do not exceed, 0 if none was recorded
+     */
+    public long getPercentileMicros(final double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.bucketUpperBound(i), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    public long getMedianMicros() {
+        return getPercentileMicros(50);
+    }
+
+    public long getP90Micros() {
+        return getPercentileMicros(90);
+    }
+
+    public long getP99Micros() {
+        return getPercentileMicros(99);
+    }
+
+    public long getP999Micros() {
+        return getPercentileMicros(99.9);
+    }
+}
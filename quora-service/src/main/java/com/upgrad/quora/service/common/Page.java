@@ -0,0 +1,42 @@
+package com.upgrad.quora.service.common;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset paginated list, together with the cursor of the page which follows it.
+ */
+public class Page<T> {
+
+    private final List<T> items;
+
+    private final String nextCursor;
+
+    public Page(final List<T> items, final String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /*
+     * Builds a page from rows fetched with a limit one higher than the page size.
+     * The extra row only tells whether another page exists and is dropped.
+     */
+    public static <T> Page<T> of(final List<T> rows, final int limit, final Function<T, PageCursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return new Page<T>(rows, null);
+        }
+        final List<T> items = rows.subList(0, limit);
+        return new Page<T>(items, cursorOf.apply(items.get(limit - 1)).encode());
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /*
+     * @return the cursor of the next page, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,62 @@
+package com.upgrad.quora.service.common;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a list ordered by (date desc, id desc), handed to clients as an opaque string.
+ * The next page starts with the first row which sorts strictly after the row the cursor was taken from,
+ * so rows inserted while a client is paging never shift the pages it has not read yet.
+ */
+public final class PageCursor {
+
+    private final ZonedDateTime date;
+
+    private final long id;
+
+    public PageCursor(final ZonedDateTime date, final long id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /*
+     * Encodes the cursor as url safe base64 of "epochSecond.nano:id".
+     */
+    public String encode() {
+        final Instant instant = date.toInstant();
+        final String value = instant.getEpochSecond() + "." + instant.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /*
+     * Decodes a cursor produced by encode().
+     * @return the cursor, or null if no cursor was given
+     * @throws UnexpectedException with GEN-003 if the cursor was not produced by this application
+     */
+    public static PageCursor decode(final String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        try {
+            final String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            final int dot = value.indexOf('.');
+            final int colon = value.indexOf(':');
+            final Instant instant = Instant.ofEpochSecond(Long.parseLong(value.substring(0, dot)), Long.parseLong(value.substring(dot + 1, colon)));
+            return new PageCursor(ZonedDateTime.ofInstant(instant, ZoneId.systemDefault()), Long.parseLong(value.substring(colon + 1)));
+        } catch (RuntimeException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_003, e);
+        }
+    }
+}
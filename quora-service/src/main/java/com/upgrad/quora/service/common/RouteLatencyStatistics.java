@@ -0,0 +1,97 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Point-in-time snapshot of the latency of the requests to one route which ended with one status.
+ * Requests, total time and SQL work count every request since startup, the window statistics the last window only.
+ */
+public class RouteLatencyStatistics {
+
+    private final String route;
+
+    private final int status;
+
+    private final long requests;
+
+    private final long totalMicros;
+
+    private final long windowSeconds;
+
+    private final LatencyStatistics window;
+
+    private final SqlStatistics sql;
+
+    private final long maxStatements;
+
+    public RouteLatencyStatistics(final String route, final int status, final long requests, final long totalMicros,
+                                  final long windowSeconds, final LatencyStatistics window, final SqlStatistics sql,
+                                  final long maxStatements) {
+        this.route = route;
+        this.status = status;
+        this.requests = requests;
+        this.totalMicros = totalMicros;
+        this.windowSeconds = windowSeconds;
+        this.window = window;
+        this.sql = sql;
+        this.maxStatements = maxStatements;
+    }
+
+    /*
+     * @return HTTP method and path pattern, such as "GET /question/all"
+     */
+    public String getRoute() {
+        return route;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    public long getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    /*
+     * @return percentiles of the last window, corrected for coordinated omission if an expected interval is set
+     */
+    public LatencyStatistics getWindow() {
+        return window;
+    }
+
+    /*
+     * @return the SQL work of all the requests
+     */
+    public SqlStatistics getSql() {
+        return sql;
+    }
+
+    /*
+     * @return most statements a single request executed
+     */
+    public long getMaxStatements() {
+        return maxStatements;
+    }
+
+    public double getAverageStatements() {
+        return requests == 0 ? 0.0 : (double) sql.getStatements() / requests;
+    }
+
+    public double getAverageEntityLoads() {
+        return requests == 0 ? 0.0 : (double) sql.getEntityLoads() / requests;
+    }
+
+    public double getAverageFlushes() {
+        return requests == 0 ? 0.0 : (double) sql.getFlushes() / requests;
+    }
+
+    public double getAverageJdbcMicros() {
+        return requests == 0 ? 0.0 : (double) sql.getJdbcMicros() / requests;
+    }
+}
@@ -0,0 +1,12 @@
+package com.upgrad.quora.service.common;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a streamed query one at a time, while the query is still being read.
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+
+    void handle(T row) throws IOException;
+}
@@ -0,0 +1,38 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Latency histogram over a sliding window, kept as a ring of slices of which the oldest is reset on every rotation.
+ * Its statistics cover the slices before the current one and the current one so far.
+ */
+public class SlidingLatencyHistogram {
+
+    private final LatencyHistogram[] slices;
+
+    private volatile int current;
+
+    public SlidingLatencyHistogram(final int sliceCount) {
+        slices = new LatencyHistogram[Math.max(1, sliceCount)];
+        for (int i = 0; i < slices.length; i++) {
+            slices[i] = new LatencyHistogram();
+        }
+    }
+
+    public void recordMicros(final long micros, final long expectedIntervalMicros) {
+        slices[current].recordMicros(micros, expectedIntervalMicros);
+    }
+
+    // Starts a new slice in place of the oldest one
+    public synchronized void rotate() {
+        final int next = (current + 1) % slices.length;
+        slices[next].reset();
+        current = next;
+    }
+
+    public LatencyStatistics getStatistics() {
+        LatencyStatistics statistics = slices[0].getStatistics();
+        for (int i = 1; i < slices.length; i++) {
+            statistics = statistics.plus(slices[i].getStatistics());
+        }
+        return statistics;
+    }
+}
@@ -0,0 +1,39 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Point-in-time snapshot of the SQL work Hibernate did for one request, or for all requests to a route.
+ * Statements count executions, a JDBC batch once; JDBC time is the time spent executing them.
+ */
+public class SqlStatistics {
+
+    private final long statements;
+
+    private final long entityLoads;
+
+    private final long flushes;
+
+    private final long jdbcMicros;
+
+    public SqlStatistics(final long statements, final long entityLoads, final long flushes, final long jdbcMicros) {
+        this.statements = statements;
+        this.entityLoads = entityLoads;
+        this.flushes = flushes;
+        this.jdbcMicros = jdbcMicros;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getEntityLoads() {
+        return entityLoads;
+    }
+
+    public long getFlushes() {
+        return flushes;
+    }
+
+    public long getJdbcMicros() {
+        return jdbcMicros;
+    }
+}
@@ -0,0 +1,84 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Point-in-time snapshot of the counters kept by a bounded worker pool.
+ * Times are reported in microseconds.
+ */
+public class WorkerPoolStatistics {
+
+    private final int poolSize;
+
+    private final int activeCount;
+
+    private final int queueDepth;
+
+    private final int queueCapacity;
+
+    private final long completed;
+
+    private final long rejected;
+
+    private final long totalQueueWaitMicros;
+
+    private final long maxQueueWaitMicros;
+
+    private final long totalExecutionMicros;
+
+    private final long maxExecutionMicros;
+
+    public WorkerPoolStatistics(final int poolSize, final int activeCount, final int queueDepth, final int queueCapacity,
+                                final long completed, final long rejected,
+                                final long totalQueueWaitMicros, final long maxQueueWaitMicros,
+                                final long totalExecutionMicros, final long maxExecutionMicros) {
+        this.poolSize = poolSize;
+        this.activeCount = activeCount;
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.completed = completed;
+        this.rejected = rejected;
+        this.totalQueueWaitMicros = totalQueueWaitMicros;
+        this.maxQueueWaitMicros = maxQueueWaitMicros;
+        this.totalExecutionMicros = totalExecutionMicros;
+        this.maxExecutionMicros = maxExecutionMicros;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getMaxQueueWaitMicros() {
+        return maxQueueWaitMicros;
+    }
+
+    public long getMaxExecutionMicros() {
+        return maxExecutionMicros;
+    }
+
+    public double getAverageQueueWaitMicros() {
+        return completed == 0 ? 0.0 : (double) totalQueueWaitMicros / completed;
+    }
+
+    public double getAverageExecutionMicros() {
+        return completed == 0 ? 0.0 : (double) totalExecutionMicros / completed;
+    }
+}
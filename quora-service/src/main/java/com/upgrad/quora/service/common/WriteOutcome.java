@@ -0,0 +1,42 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Result of an update or delete which checks in the same statement that the row exists and that the user may write it.
+ */
+public enum WriteOutcome {
+
+    WRITTEN,
+
+    NOT_FOUND,
+
+    NOT_PERMITTED,
+
+    CONFLICT;
+
+    /**
+     * @param found number of rows with the requested uuid
+     * @param written number of those rows which were updated or deleted
+     */
+    public static WriteOutcome of(final long found, final long written) {
+        if (written > 0) {
+            return WRITTEN;
+        }
+        return found > 0 ? NOT_PERMITTED : NOT_FOUND;
+    }
+
+    /**
+     * For writes which also require the row to still have the version the user read.
+     * @param found number of rows with the requested uuid
+     * @param permitted number of those rows which the user may write
+     * @param written number of those rows which were written, the others had another version
+     */
+    public static WriteOutcome of(final long found, final long permitted, final long written) {
+        if (written > 0) {
+            return WRITTEN;
+        }
+        if (permitted > 0) {
+            return CONFLICT;
+        }
+        return found > 0 ? NOT_PERMITTED : NOT_FOUND;
+    }
+}
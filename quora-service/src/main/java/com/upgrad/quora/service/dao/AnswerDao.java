@@ -1,12 +1,17 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.common.WriteOutcome;
+import com.upgrad.quora.service.common.Page;
+import com.upgrad.quora.service.common.PageCursor;
+import com.upgrad.quora.service.dto.AnswerSummary;
 import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.UuidAttributeConverter;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
-import java.util.List;
+import javax.persistence.TypedQuery;
 
 @Repository
 public class AnswerDao {
@@ -27,20 +32,56 @@ public class AnswerDao {
         }
     }
 
-    public void userAnswerDelete(final String answerId) {
-        AnswerEntity answerEntity = getAnswerByUuid(answerId);
-        entityManager.remove(answerEntity);
+    /*
+     * Deletes the answer if the user owns it or is an admin, in one statement which also tells whether the answer exists.
+     * @param userId id of the user asking for the delete
+     * @param admin whether that user is an admin, who may delete any answer
+     */
+    public WriteOutcome deleteAnswerIfPermitted(final String uuid, final long userId, final boolean admin) {
+        final Object[] counts = (Object[]) entityManager.createNamedQuery("deleteAnswerByUuidIfPermitted")
+                .setParameter("uuid", UuidAttributeConverter.canonical(uuid))
+                .setParameter("userId", userId)
+                .setParameter("admin", admin)
+                .getSingleResult();
+        return WriteOutcome.of(((Number) counts[0]).longValue(), ((Number) counts[1]).longValue());
     }
 
-    public List<AnswerEntity> getAllAnswersToQuestion(final String questionId) {
-        try {
-            return entityManager.createNamedQuery("answerEntityByQuestionId", AnswerEntity.class).setParameter("uuid", questionId).getResultList();
-        } catch (NoResultException nre) {
-            return null;
-        }
+    /*
+     * Returns one page of the answers to the question, newest first.
+     * @param cursor position after which the page starts, or null for the first page
+     * @param limit maximum number of answers in the page
+     */
+    public Page<AnswerSummary> getAllAnswersToQuestion(final String questionId, final PageCursor cursor, final int limit) {
+        final TypedQuery<AnswerSummary> query = cursor == null
+                ? entityManager.createNamedQuery("answerSummariesByQuestionId", AnswerSummary.class)
+                : entityManager.createNamedQuery("answerSummariesByQuestionIdAfterCursor", AnswerSummary.class)
+                        .setParameter("date", cursor.getDate()).setParameter("id", cursor.getId());
+
+        // One row more than the page is read to find out whether a next page exists
+        return Page.of(query.setParameter("uuid", questionId).setMaxResults(limit + 1).getResultList(), limit,
+                answerSummary -> new PageCursor(answerSummary.getDate(), answerSummary.getId()));
     }
 
-    public AnswerEntity editAnswerContent(final AnswerEntity answerEntity) {
-        return entityManager.merge(answerEntity);
+    /*
+     * Sets the text of the answer if the user owns it, in one UPDATE which also tells whether the answer exists.
+     * Nothing is read beforehand and no other column is written. When answerEntity has a version the answer must still
+     * have it, otherwise the outcome is CONFLICT and nothing is written. On success the id and the raised version are set on answerEntity.
+     * @param answerEntity carries the uuid of the answer, the new text and the version the edit depends on, if any
+     * @param userId id of the user asking for the edit
+     */
+    public WriteOutcome editAnswerContent(final AnswerEntity answerEntity, final long userId) {
+        final Object[] counts = (Object[]) entityManager.createNamedQuery("editAnswerContentIfOwner")
+                .setParameter("uuid", UuidAttributeConverter.canonical(answerEntity.getUuid()))
+                .setParameter("content", answerEntity.getAnswer())
+                .setParameter("userId", userId)
+                .setParameter("version", answerEntity.getVersion() == null ? 0 : answerEntity.getVersion())
+                .setParameter("anyVersion", answerEntity.getVersion() == null)
+                .getSingleResult();
+        final WriteOutcome outcome = WriteOutcome.of(((Number) counts[0]).longValue(), ((Number) counts[1]).longValue(), ((Number) counts[2]).longValue());
+        if (outcome == WriteOutcome.WRITTEN) {
+            answerEntity.setId(((Number) counts[3]).longValue());
+            answerEntity.setVersion(((Number) counts[4]).intValue());
+        }
+        return outcome;
     }
 }
@@ -0,0 +1,59 @@
+package com.upgrad.quora.service.dao;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.ehcache.EhCacheRegionFactory;
+import org.hibernate.cache.internal.StandardQueryCache;
+import org.hibernate.cache.spi.UpdateTimestampsCache;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+
+import java.util.Properties;
+
+/**
+ * In-process Hibernate second-level cache backed by an Ehcache manager which belongs to this session factory only.
+ * Sizes and time to live are read from the quora.second-level-cache.* Hibernate properties instead of an ehcache.xml,
+ * so they are configured in application.yaml like every other setting.
+ * Every entity and query region holds up to max-entries records for at most ttl-seconds.
+ * The update timestamps region never expires, a query result is only served while every table it reads is unchanged.
+ */
+public class LocalCacheRegionFactory extends EhCacheRegionFactory {
+
+    public static final String MAX_ENTRIES = "quora.second-level-cache.max-entries";
+    public static final String TTL_SECONDS = "quora.second-level-cache.ttl-seconds";
+
+    // Regions named by the @Cache annotations and query hints of the entities, plus the default query results region
+    private static final String[] REGIONS = {"users", "questions", "uuid-lookups", StandardQueryCache.class.getName()};
+
+    @Override
+    public void start(final SessionFactoryOptions settings, final Properties properties) throws CacheException {
+        this.settings = settings;
+        if (manager != null) {
+            return;
+        }
+
+        final int maxEntries = ConfigurationHelper.getInt(MAX_ENTRIES, properties, 10000);
+        final long ttlSeconds = ConfigurationHelper.getLong(TTL_SECONDS, properties, 600);
+
+        final Configuration configuration = new Configuration()
+                .name("quora-second-level-" + System.identityHashCode(this))
+                .updateCheck(false)
+                .defaultCache(new CacheConfiguration("default", maxEntries).timeToLiveSeconds(ttlSeconds))
+                .cache(new CacheConfiguration(UpdateTimestampsCache.REGION_NAME, 0).eternal(true));
+        for (String region : REGIONS) {
+            configuration.addCache(new CacheConfiguration(region, maxEntries).timeToLiveSeconds(ttlSeconds));
+        }
+        manager = new CacheManager(configuration);
+    }
+
+    @Override
+    public void stop() {
+        if (manager != null) {
+            manager.shutdown();
+            manager = null;
+        }
+    }
+
+}
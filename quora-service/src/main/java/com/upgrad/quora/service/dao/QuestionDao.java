@@ -1,12 +1,31 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.common.WriteOutcome;
+import com.upgrad.quora.service.common.Page;
+import com.upgrad.quora.service.common.PageCursor;
+import com.upgrad.quora.service.common.RowHandler;
+import com.upgrad.quora.service.dto.QuestionExportRow;
+import com.upgrad.quora.service.dto.QuestionSummary;
 import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UuidAttributeConverter;
 import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.hibernate.Cache;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.io.IOException;
+import java.time.ZonedDateTime;
 import java.util.List;
 
 @Repository
@@ -20,6 +39,21 @@ public class QuestionDao {
         return questionEntity;
     }
 
+    /*
+     * Inserts one batch of a bulk import and detaches it again, so the persistence context never holds more than one batch.
+     * The ids come from the pooled sequence, so the inserts are sent as JDBC batches of hibernate.jdbc.batch_size rows.
+     * Imported questions are not put into the second-level cache, an import would otherwise evict the questions being read.
+     * Must be called inside a transaction.
+     */
+    public void createQuestionBatch(final List<QuestionEntity> questionEntities) {
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        for (QuestionEntity questionEntity : questionEntities) {
+            entityManager.persist(questionEntity);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
     public QuestionEntity getQuestionById(final long questionId) {
         try {
             return entityManager.createNamedQuery("questionEntityById", QuestionEntity.class).setParameter("uuid", questionId).getSingleResult();
@@ -28,12 +62,16 @@ public class QuestionDao {
         }
     }
 
-    public List<QuestionEntity> getAllQuestionsByUser(final String uuid){
-        try {
-            return entityManager.createNamedQuery("questionByUserId", QuestionEntity.class).setParameter("uuid", uuid).getResultList();
-        } catch (NoResultException nre) {
-            return null;
-        }
+    /*
+     * Returns one page of the questions posted by the user, newest first.
+     * @param cursor position after which the page starts, or null for the first page
+     * @param limit maximum number of questions in the page
+     */
+    public Page<QuestionSummary> getAllQuestionsByUser(final String uuid, final PageCursor cursor, final int limit) {
+        final TypedQuery<QuestionSummary> query = cursor == null
+                ? entityManager.createNamedQuery("questionSummariesByUserId", QuestionSummary.class)
+                : afterCursor(entityManager.createNamedQuery("questionSummariesByUserIdAfterCursor", QuestionSummary.class), cursor);
+        return page(query.setParameter("uuid", uuid), limit);
     }
 
     public QuestionEntity getQuestionByUuid(final String uuid) {
@@ -44,20 +82,128 @@ public class QuestionDao {
         }
     }
 
-    public void userQuestionDelete(final String uuid) {
-        QuestionEntity questionEntity = getQuestionByUuid(uuid);
-        entityManager.remove(questionEntity);
+    /*
+     * Deletes the question if the user owns it or is an admin, in one statement which also tells whether the question exists.
+     * Its answers are deleted by the foreign key cascade. The statement is native, so Hibernate does not know what it deleted:
+     * once the transaction commits the question is evicted from the second-level cache, together with the cached uuid lookups.
+     * @param userId id of the user asking for the delete
+     * @param admin whether that user is an admin, who may delete any question
+     */
+    public WriteOutcome deleteQuestionIfPermitted(final String uuid, final long userId, final boolean admin) {
+        final Object[] counts = (Object[]) entityManager.createNamedQuery("deleteQuestionByUuidIfPermitted")
+                .setParameter("uuid", UuidAttributeConverter.canonical(uuid))
+                .setParameter("userId", userId)
+                .setParameter("admin", admin)
+                .getSingleResult();
+        final WriteOutcome outcome = WriteOutcome.of(((Number) counts[0]).longValue(), ((Number) counts[1]).longValue());
+        if (outcome == WriteOutcome.WRITTEN) {
+            final long id = ((Number) counts[2]).longValue();
+            afterCommit(() -> {
+                final Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+                cache.evictEntity(QuestionEntity.class, id);
+                cache.evictQueryRegions();
+            });
+        }
+        return outcome;
     }
 
-    public QuestionEntity editQuestionContent(final QuestionEntity questionEntity) {
-        return entityManager.merge(questionEntity);
+    /*
+     * Sets the content of the question if the user owns it, in one UPDATE which also tells whether the question exists.
+     * Nothing is read beforehand and no other column is written. When questionEntity has a version the question must still
+     * have it, otherwise the outcome is CONFLICT and nothing is written. On success the id and the raised version are set on
+     * questionEntity, and once the transaction commits the question is evicted from the second-level cache.
+     * @param questionEntity carries the uuid of the question, the new content and the version the edit depends on, if any
+     * @param userId id of the user asking for the edit
+     */
+    public WriteOutcome editQuestionContent(final QuestionEntity questionEntity, final long userId) {
+        final Object[] counts = (Object[]) entityManager.createNamedQuery("editQuestionContentIfOwner")
+                .setParameter("uuid", UuidAttributeConverter.canonical(questionEntity.getUuid()))
+                .setParameter("content", questionEntity.getContent())
+                .setParameter("userId", userId)
+                .setParameter("version", questionEntity.getVersion() == null ? 0 : questionEntity.getVersion())
+                .setParameter("anyVersion", questionEntity.getVersion() == null)
+                .getSingleResult();
+        final WriteOutcome outcome = WriteOutcome.of(((Number) counts[0]).longValue(), ((Number) counts[1]).longValue(), ((Number) counts[2]).longValue());
+        if (outcome == WriteOutcome.WRITTEN) {
+            final long id = ((Number) counts[3]).longValue();
+            questionEntity.setId(id);
+            questionEntity.setVersion(((Number) counts[4]).intValue());
+            afterCommit(() -> entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache().evictEntity(QuestionEntity.class, id));
+        }
+        return outcome;
     }
 
-    public List<QuestionEntity> getAllQuestions() {
-        try {
-            return entityManager.createNamedQuery("allQuestions", QuestionEntity.class).getResultList();
-        } catch (NoResultException nre) {
-            return null;
+    /*
+     * Returns one page of all the questions, newest first.
+     * @param cursor position after which the page starts, or null for the first page
+     * @param limit maximum number of questions in the page
+     */
+    public Page<QuestionSummary> getAllQuestions(final PageCursor cursor, final int limit) {
+        final TypedQuery<QuestionSummary> query = cursor == null
+                ? entityManager.createNamedQuery("allQuestionSummaries", QuestionSummary.class)
+                : afterCursor(entityManager.createNamedQuery("allQuestionSummariesAfterCursor", QuestionSummary.class), cursor);
+        return page(query, limit);
+    }
+
+    /*
+     * Reads all the questions, newest first, through a forward-only cursor and hands them to the handler one at a time.
+     * Only fetchSize rows are held by the JDBC driver at once and the rows are projected straight into QuestionSummary,
+     * so nothing accumulates in the persistence context and memory use does not grow with the number of questions.
+     * Must be called inside a transaction, otherwise the PostgreSQL driver ignores the fetch size and reads every row.
+     */
+    public void scrollAllQuestions(final int fetchSize, final RowHandler<QuestionSummary> handler) throws IOException {
+        final Session session = entityManager.unwrap(Session.class);
+        scroll(session.createNamedQuery("allQuestionSummaries", QuestionSummary.class), fetchSize, handler);
+    }
+
+    /*
+     * Reads every question joined with each of its answers, oldest question first, through a forward-only cursor.
+     * The rows of one question are consecutive and its answers are ordered oldest first, a question without answers
+     * gives a single row without answer. Memory use does not grow with the number of rows, as in scrollAllQuestions.
+     * @param since only questions posted at or after it are read, or null for all questions
+     */
+    public void scrollQuestionExport(final ZonedDateTime since, final int fetchSize, final RowHandler<QuestionExportRow> handler) throws IOException {
+        final Session session = entityManager.unwrap(Session.class);
+        final Query<QuestionExportRow> query = since == null
+                ? session.createNamedQuery("questionExport", QuestionExportRow.class)
+                : session.createNamedQuery("questionExportSince", QuestionExportRow.class).setParameter("since", since);
+        scroll(query, fetchSize, handler);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void scroll(final Query<T> query, final int fetchSize, final RowHandler<T> handler) throws IOException {
+        try (ScrollableResults results = query
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                handler.handle((T) results.get(0));
+            }
+        }
+    }
+
+    // Runs the action once the surrounding transaction commits, or straight away when there is none
+    private void afterCommit(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static TypedQuery<QuestionSummary> afterCursor(final TypedQuery<QuestionSummary> query, final PageCursor cursor) {
+        return query.setParameter("date", cursor.getDate()).setParameter("id", cursor.getId());
+    }
+
+    // One row more than the page is read to find out whether a next page exists
+    private static Page<QuestionSummary> page(final TypedQuery<QuestionSummary> query, final int limit) {
+        return Page.of(query.setMaxResults(limit + 1).getResultList(), limit,
+                questionSummary -> new PageCursor(questionSummary.getDate(), questionSummary.getId()));
     }
 }
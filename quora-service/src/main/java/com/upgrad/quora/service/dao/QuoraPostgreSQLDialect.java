@@ -0,0 +1,27 @@
+package com.upgrad.quora.service.dao;
+
+import org.hibernate.dialect.PostgreSQL9Dialect;
+import org.hibernate.type.PostgresUUIDType;
+import org.hibernate.type.descriptor.sql.JdbcTypeJavaClassMappings;
+import org.hibernate.type.descriptor.sql.SqlTypeDescriptor;
+
+import java.util.UUID;
+
+/**
+ * PostgreSQL dialect of the application.
+ * Hibernate has no JDBC type for the java.util.UUID side of an AttributeConverter and would bind it as a serialized bytea.
+ * Those values are bound and read as native uuid instead, which is what UuidAttributeConverter relies on.
+ */
+public class QuoraPostgreSQLDialect extends PostgreSQL9Dialect {
+
+    private static final int UUID_TYPE_CODE = JdbcTypeJavaClassMappings.INSTANCE.determineJdbcTypeCodeForJavaClass(UUID.class);
+
+    @Override
+    public SqlTypeDescriptor getSqlTypeDescriptorOverride(final int sqlCode) {
+        if (sqlCode == UUID_TYPE_CODE) {
+            return PostgresUUIDType.PostgresUUIDSqlTypeDescriptor.INSTANCE;
+        }
+        return super.getSqlTypeDescriptorOverride(sqlCode);
+    }
+
+}
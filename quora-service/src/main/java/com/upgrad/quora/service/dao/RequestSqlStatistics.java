@@ -0,0 +1,77 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.common.SqlStatistics;
+
+/**
+ * Counts the SQL work Hibernate does on the current thread between begin and end, which the web layer calls around
+ * every request. SqlAccountingSessionListener and SqlAccountingInterceptor report to it; work done on a thread
+ * where no request began, such as a scheduled job, is not counted.
+ */
+public final class RequestSqlStatistics {
+
+    private static final ThreadLocal<RequestSqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private long statements;
+
+    private long entityLoads;
+
+    private long flushes;
+
+    private long jdbcNanos;
+
+    private RequestSqlStatistics() {
+    }
+
+    public static void begin() {
+        CURRENT.set(new RequestSqlStatistics());
+    }
+
+    /*
+     * @return what the current thread did since begin, or null if it did not begin
+     */
+    public static SqlStatistics current() {
+        final RequestSqlStatistics statistics = CURRENT.get();
+        return statistics == null ? null : statistics.snapshot();
+    }
+
+    /*
+     * @return what the current thread did since begin, after which it is no longer counted
+     */
+    public static SqlStatistics end() {
+        final SqlStatistics statistics = current();
+        CURRENT.remove();
+        return statistics;
+    }
+
+    // JDBC time of the current thread since begin, 0 if it did not begin
+    static long jdbcNanos() {
+        final RequestSqlStatistics statistics = CURRENT.get();
+        return statistics == null ? 0 : statistics.jdbcNanos;
+    }
+
+    static void statementExecuted(final long nanos) {
+        final RequestSqlStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statements++;
+            statistics.jdbcNanos += nanos;
+        }
+    }
+
+    static void entityLoaded() {
+        final RequestSqlStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.entityLoads++;
+        }
+    }
+
+    static void flushed() {
+        final RequestSqlStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.flushes++;
+        }
+    }
+
+    private SqlStatistics snapshot() {
+        return new SqlStatistics(statements, entityLoads, flushes, jdbcNanos / 1000);
+    }
+}
@@ -0,0 +1,75 @@
+package com.upgrad.quora.service.dao;
+
+/**
+ * Times the token validation of a request whose client asked for the Server-Timing breakdown, on the current thread
+ * between begin and end, which the web layer calls around such requests only. Every other request finds no timing
+ * and pays one thread-local read per token lookup.
+ * The SQL time of the validation is kept apart, so that the SQL time of the rest of the request can be told from it.
+ */
+public final class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startedAt;
+
+    private long tokenValidationNanos;
+
+    private long tokenValidationJdbcNanos;
+
+    private long validationStartedAt;
+
+    private long validationJdbcNanosAtStart;
+
+    private RequestTiming(final long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    /*
+     * @param startedAt System.nanoTime() when the request arrived
+     */
+    public static void begin(final long startedAt) {
+        CURRENT.set(new RequestTiming(startedAt));
+    }
+
+    /*
+     * @return the timing of the current thread, or null if it did not begin
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static void tokenValidationStarted() {
+        final RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.validationStartedAt = System.nanoTime();
+            timing.validationJdbcNanosAtStart = RequestSqlStatistics.jdbcNanos();
+        }
+    }
+
+    public static void tokenValidationEnded() {
+        final RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.tokenValidationNanos += System.nanoTime() - timing.validationStartedAt;
+            timing.tokenValidationJdbcNanos += RequestSqlStatistics.jdbcNanos() - timing.validationJdbcNanosAtStart;
+        }
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getTokenValidationNanos() {
+        return tokenValidationNanos;
+    }
+
+    /*
+     * @return time the token validation spent executing SQL, part of the token validation time
+     */
+    public long getTokenValidationJdbcNanos() {
+        return tokenValidationJdbcNanos;
+    }
+}
@@ -0,0 +1,19 @@
+package com.upgrad.quora.service.dao;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+
+/**
+ * Reports every entity a session loads to RequestSqlStatistics, from the database or the second-level cache.
+ * Hibernate creates one per session, it is set as hibernate.session_factory.session_scoped_interceptor.
+ */
+public class SqlAccountingInterceptor extends EmptyInterceptor {
+
+    @Override
+    public boolean onLoad(final Object entity, final Serializable id, final Object[] state, final String[] propertyNames, final Type[] types) {
+        RequestSqlStatistics.entityLoaded();
+        return false;
+    }
+}
@@ -0,0 +1,37 @@
+package com.upgrad.quora.service.dao;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Reports the statements, JDBC time and flushes of a session to RequestSqlStatistics.
+ * Hibernate creates one per session, it is set as hibernate.session.events.auto.
+ */
+public class SqlAccountingSessionListener extends BaseSessionEventListener {
+
+    private long executeStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        RequestSqlStatistics.statementExecuted(System.nanoTime() - executeStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        RequestSqlStatistics.statementExecuted(System.nanoTime() - executeStart);
+    }
+
+    @Override
+    public void flushStart() {
+        RequestSqlStatistics.flushed();
+    }
+}
@@ -0,0 +1,184 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.common.CacheStatistics;
+import com.upgrad.quora.service.dto.UserSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, TTL-evicting cache of the UserSession of an access token.
+ * It sits in front of the "userSessionByAccessToken" query so that repeated calls with the same token
+ * do not hit the USER_AUTH table. An entry never outlives the EXPIRES_AT of the token it holds.
+ *
+ * Lookups and updates never take a lock: the entries live in a ConcurrentHashMap and hold an immutable UserSession.
+ * Once the cache grows past quora.auth.session-cache.max-size, the one thread which wins the eviction flag drops the
+ * expired entries and then the least recently used ones, down to nine tenths of the maximum, while the others go on.
+ *
+ * Sign outs and user deletions invalidate the cache of this instance only, another instance keeps accepting the
+ * token until its entry expires after at most quora.auth.session-cache.ttl-seconds.
+ */
+@Component
+public class UserAuthTokenCache {
+
+    private static final long ACCESS_RESOLUTION_MILLIS = 1000;
+
+    @Value("${quora.auth.session-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.auth.session-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${quora.auth.session-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final ConcurrentHashMap<String, CachedSession> entries = new ConcurrentHashMap<String, CachedSession>();
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /*
+     * Returns the cached UserSession for the access token, or null if it is absent or has expired.
+     */
+    public UserSession get(final String accessToken) {
+        if (!enabled || accessToken == null) {
+            return null;
+        }
+
+        final CachedSession cached = entries.get(accessToken);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+
+        final long now = System.currentTimeMillis();
+        if (cached.expiresAtMillis <= now) {
+            if (entries.remove(accessToken, cached)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+
+        // Only refreshed once a second, so that the requests of one busy token do not all write the same field
+        if (now - cached.lastAccessMillis >= ACCESS_RESOLUTION_MILLIS) {
+            cached.lastAccessMillis = now;
+        }
+        hits.increment();
+        return cached.userSession;
+    }
+
+    /*
+     * Caches the UserSession until the configured TTL or the token expiry, whichever comes first.
+     * Tokens which are already expired are not cached.
+     */
+    public void put(final String accessToken, final UserSession userSession) {
+        if (!enabled || accessToken == null || userSession == null || maxSize <= 0) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        long expiresAtMillis = now + TimeUnit.SECONDS.toMillis(ttlSeconds);
+        if (userSession.getExpiresAt() != null) {
+            expiresAtMillis = Math.min(expiresAtMillis, userSession.getExpiresAt().toInstant().toEpochMilli());
+        }
+        if (expiresAtMillis <= now) {
+            return;
+        }
+
+        entries.put(accessToken, new CachedSession(userSession, expiresAtMillis, now));
+        if (entries.size() > maxSize && evicting.compareAndSet(false, true)) {
+            try {
+                evict(now);
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    public void invalidate(final String accessToken) {
+        if (accessToken != null && entries.remove(accessToken) != null) {
+            evictions.increment();
+        }
+    }
+
+    /*
+     * Drops every cached token which belongs to the user with the given uuid.
+     */
+    public void invalidateUser(final String userUuid) {
+        for (final Map.Entry<String, CachedSession> entry : entries.entrySet()) {
+            if (entry.getValue().userSession.getUserUuid().equals(userUuid) && entries.remove(entry.getKey(), entry.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), entries.size(), maxSize);
+    }
+
+    // Evicts in a batch, so that the sort is paid once for every tenth of the maximum size and not on every put
+    private void evict(final long now) {
+        final List<Map.Entry<String, CachedSession>> live = new ArrayList<Map.Entry<String, CachedSession>>(entries.size());
+        final Iterator<Map.Entry<String, CachedSession>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, CachedSession> entry = iterator.next();
+            if (entry.getValue().expiresAtMillis <= now) {
+                iterator.remove();
+                evictions.increment();
+            } else {
+                live.add(entry);
+            }
+        }
+
+        final int target = maxSize - maxSize / 10;
+        final int excess = entries.size() - target;
+        if (excess <= 0 || live.isEmpty()) {
+            return;
+        }
+
+        // The access times keep changing under the lookups, so the ones sorted are read once into an array
+        final long[] lastAccess = new long[live.size()];
+        for (int i = 0; i < lastAccess.length; i++) {
+            lastAccess[i] = live.get(i).getValue().lastAccessMillis;
+        }
+        final long[] sorted = lastAccess.clone();
+        Arrays.sort(sorted);
+        final long threshold = sorted[Math.min(excess, sorted.length) - 1];
+        for (int i = 0; i < lastAccess.length && entries.size() > target; i++) {
+            if (lastAccess[i] <= threshold && entries.remove(live.get(i).getKey(), live.get(i).getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static final class CachedSession {
+
+        private final UserSession userSession;
+
+        private final long expiresAtMillis;
+
+        // Written without synchronization by the lookups, an eviction which reads a stale value only picks another entry
+        private volatile long lastAccessMillis;
+
+        private CachedSession(final UserSession userSession, final long expiresAtMillis, final long lastAccessMillis) {
+            this.userSession = userSession;
+            this.expiresAtMillis = expiresAtMillis;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+    }
+}
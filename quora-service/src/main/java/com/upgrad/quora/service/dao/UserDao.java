@@ -1,20 +1,43 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.dto.UserSession;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.RevokedTokenEntity;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.util.List;
 
 @Repository
 public class UserDao {
 
+    // MessageDigest instances are not thread safe, each request thread keeps its own
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     @PersistenceContext
     private EntityManager entityManager;
 
-
+    @Autowired
+    private UserAuthTokenCache userAuthTokenCache;
 
 
     /*
@@ -57,30 +80,156 @@ public class UserDao {
     /*
      * This method is added to persist the authData in database
      *
+     * The digest of the access token is stored alongside it, sessions are looked up by the digest
+     *
      * @param userAuthEntity Contains user information who has signed in and the access token
      * @return The userAuthEntity that is saved in data base
      */
 
     public UserAuthEntity createAuthToken(final UserAuthEntity userAuthEntity){
+        userAuthEntity.setAccessTokenDigest(digestAccessToken(userAuthEntity.getAccessToken()));
         entityManager.persist(userAuthEntity);
         return userAuthEntity;
     }
 
     /*
-     * Retrieves the user auth record matched with the access token passed
+     * Retrieves the session matched with the access token passed
      * The access token is the one generated at the time of login
+     * Sessions are served from the session cache when present
+     *
+     * @param accessToken The Security accessToken generated at the time of Sign in
+     * @return The UserSession matched with the accessToken
+     */
+
+    public UserSession getUserSession(final String accessToken) {
+        RequestTiming.tokenValidationStarted();
+        try {
+            UserSession userSession = userAuthTokenCache.get(accessToken);
+            if (userSession == null) {
+                userSession = findUserSession(accessToken);
+                userAuthTokenCache.put(accessToken, userSession);
+            }
+            return userSession;
+        } finally {
+            RequestTiming.tokenValidationEnded();
+        }
+    }
+
+    /*
+     * Returns the user with the given id without reading it, for associating a new record with the user of a session
+     */
+    public UserEntity getUserReference(final long userId) {
+        return entityManager.getReference(UserEntity.class, userId);
+    }
+
+    /*
+     * Retrieves the user auth record matched with the access token, bypassing the session cache
+     * The returned record is managed by the current persistence context, so changes made to it are saved on commit
+     * The cached copy of the token is dropped once the transaction commits
      *
      * @param accessToken The Security accessToken generated at the time of Sign in
      * @return The UserAuthEntity record matched with the accessToken
      */
+    public UserAuthEntity getUserAuthTokenForUpdate(final String accessToken) {
+        userAuthTokenCache.invalidate(accessToken);
+        afterCommit(() -> userAuthTokenCache.invalidate(accessToken));
+        RequestTiming.tokenValidationStarted();
+        try {
+            return findUserAuthToken(accessToken);
+        } finally {
+            RequestTiming.tokenValidationEnded();
+        }
+    }
 
-    public UserAuthEntity getUserAuthToken(final String accessToken) {
+    private UserAuthEntity findUserAuthToken(final String accessToken) {
+        if (accessToken == null) {
+            return null;
+        }
+        try {
+            return entityManager.createNamedQuery("userAuthByAccessToken", UserAuthEntity.class).setParameter("accessTokenDigest", digestAccessToken(accessToken)).getSingleResult();
+        } catch (NoResultException nre) {
+            return null;
+        }
+    }
+
+    private UserSession findUserSession(final String accessToken) {
+        if (accessToken == null) {
+            return null;
+        }
         try {
-            return entityManager.createNamedQuery("userAuthByAccessToken", UserAuthEntity.class).setParameter("accessToken", accessToken).getSingleResult();
+            return entityManager.createNamedQuery("userSessionByAccessToken", UserSession.class).setParameter("accessTokenDigest", digestAccessToken(accessToken)).getSingleResult();
         } catch (NoResultException nre) {
             return null;
         }
     }
+
+    // SHA-256 of the UTF-8 bytes of the token, the same value the V4 migration backfilled with pgcrypto
+    public static byte[] digestAccessToken(final String accessToken) {
+        return SHA_256.get().digest(accessToken.getBytes(StandardCharsets.UTF_8));
+    }
+    /*
+     * Retrieves the user auth records which were signed out and have not expired yet
+     *
+     * @param since only records signed out at or after this time are returned, all of them if null
+     * @param now current time
+     * @return The matching UserAuthEntity records
+     */
+    public List<UserAuthEntity> getSignedOutUserAuthTokens(final ZonedDateTime since, final ZonedDateTime now) {
+        return entityManager.createNamedQuery("signedOutUserAuthSince", UserAuthEntity.class)
+                .setParameter("since", since == null ? ZonedDateTime.of(1970, 1, 1, 0, 0, 0, 0, now.getZone()) : since)
+                .setParameter("now", now).getResultList();
+    }
+
+    /*
+     * Records the access token as revoked until it expires, for the instances which check tokens without USER_AUTH
+     *
+     * @param accessTokenDigest SHA-256 digest of the revoked access token, see digestAccessToken
+     * @param expiresAt expiry of the token
+     * @param now current time
+     */
+    public void createRevokedToken(final byte[] accessTokenDigest, final ZonedDateTime expiresAt, final ZonedDateTime now) {
+        final RevokedTokenEntity revokedTokenEntity = new RevokedTokenEntity();
+        revokedTokenEntity.setAccessTokenDigest(accessTokenDigest);
+        revokedTokenEntity.setExpiresAt(expiresAt);
+        revokedTokenEntity.setRevokedAt(now);
+        entityManager.persist(revokedTokenEntity);
+    }
+
+    /*
+     * Deletes the revocations of access tokens which have expired
+     *
+     * @param now current time
+     * @return The number of deleted revocations
+     */
+    public int deleteExpiredRevokedTokens(final ZonedDateTime now) {
+        return entityManager.createNamedQuery("deleteExpiredRevokedTokens").setParameter("now", now).executeUpdate();
+    }
+
+    /*
+     * Retrieves the revoked access tokens which have not expired yet
+     *
+     * @param since only tokens revoked at or after this time are returned, all of them if null
+     * @param now current time
+     * @return The matching RevokedTokenEntity records
+     */
+    public List<RevokedTokenEntity> getRevokedTokens(final ZonedDateTime since, final ZonedDateTime now) {
+        return entityManager.createNamedQuery("revokedTokensSince", RevokedTokenEntity.class)
+                .setParameter("since", since == null ? ZonedDateTime.of(1970, 1, 1, 0, 0, 0, 0, now.getZone()) : since)
+                .setParameter("now", now).getResultList();
+    }
+
+    /*
+     * Retrieves the user auth records of a user which are neither signed out nor expired
+     *
+     * @param userUuid uuid of the user
+     * @param now current time
+     * @return The matching UserAuthEntity records
+     */
+    public List<UserAuthEntity> getActiveUserAuthTokens(final String userUuid, final ZonedDateTime now) {
+        return entityManager.createNamedQuery("activeUserAuthByUser", UserAuthEntity.class)
+                .setParameter("uuid", userUuid).setParameter("now", now).getResultList();
+    }
+
     /*Retrieves the user detail matched with the userId passed
      * @param userUUID Id of the user
      * @return matched userID detail
@@ -98,10 +247,34 @@ public class UserDao {
 
       @param uuid of User that needed to be deleted from db
 
+      The database cascades the delete to the questions of the user without Hibernate seeing it,
+      so the cached questions and query results are evicted as well once the delete is committed.
      */
     public void deleteUser(String uuid) {
         UserEntity userEntity = getUserByUuid(uuid);
+        // the cached sessions carry the stored form of the uuid, which differs from a legacy identifier passed in
+        final String storedUuid = userEntity.getUuid();
         entityManager.remove(userEntity);
+        afterCommit(() -> {
+            userAuthTokenCache.invalidateUser(storedUuid);
+            final Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+            cache.evictEntityRegion(QuestionEntity.class);
+            cache.evictQueryRegions();
+        });
+    }
+
+    // Runs the action once the surrounding transaction commits, or straight away when there is none
+    private void afterCommit(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
 }
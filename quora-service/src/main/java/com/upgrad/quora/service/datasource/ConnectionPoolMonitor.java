@@ -0,0 +1,78 @@
+package com.upgrad.quora.service.datasource;
+
+import com.upgrad.quora.service.common.ConnectionPoolStatistics;
+import com.upgrad.quora.service.common.LatencyStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Watches the connection pools: reports connections held longer than the leak threshold and periodically logs
+ * the gauges of every pool with the acquire and hold times of the connections taken since the previous summary.
+ */
+@Component
+public class ConnectionPoolMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPoolMonitor.class);
+
+    @Autowired
+    private ReplicaRoutingDataSource dataSource;
+
+    // 0 disables leak detection
+    @Value("${quora.datasource.instrumentation.leak-threshold-ms:30000}")
+    private long leakThresholdMillis;
+
+    // comma separated business methods whose transactions stream a response and hold their connection until it is sent
+    @Value("${quora.datasource.instrumentation.leak-exempt-callers:AdminBusinessService.exportQuestions,QuestionBusinessService.streamAllQuestions}")
+    private String leakExemptCallers;
+
+    // pool name -> acquire and hold times at the previous summary
+    private final Map<String, LatencyStatistics[]> previousSummary = new HashMap<>();
+
+    public List<ConnectionPoolStatistics> getStatistics() {
+        return dataSource.getPools().stream().map(InstrumentedDataSource::getStatistics).collect(Collectors.toList());
+    }
+
+    @Scheduled(fixedDelayString = "${quora.datasource.instrumentation.leak-check-interval-ms:5000}")
+    public void detectLeaks() {
+        if (leakThresholdMillis > 0) {
+            final Set<String> exemptCallers = Arrays.stream(leakExemptCallers.split(",")).map(String::trim)
+                    .filter(caller -> !caller.isEmpty()).collect(Collectors.toSet());
+            for (InstrumentedDataSource pool : dataSource.getPools()) {
+                pool.detectLeaks(leakThresholdMillis, exemptCallers);
+            }
+        }
+    }
+
+    // Pools which handed out no connection since the previous summary and have none in use are left out
+    @Scheduled(fixedDelayString = "${quora.datasource.instrumentation.log-interval-ms:60000}",
+            initialDelayString = "${quora.datasource.instrumentation.log-interval-ms:60000}")
+    public synchronized void logSummary() {
+        for (ConnectionPoolStatistics statistics : getStatistics()) {
+            final LatencyStatistics[] previous = previousSummary.put(statistics.getName(),
+                    new LatencyStatistics[]{statistics.getAcquireTime(), statistics.getHoldTime()});
+            final LatencyStatistics acquireTime = previous == null ? statistics.getAcquireTime() : statistics.getAcquireTime().since(previous[0]);
+            final LatencyStatistics holdTime = previous == null ? statistics.getHoldTime() : statistics.getHoldTime().since(previous[1]);
+            if (acquireTime.getCount() == 0 && statistics.getActiveConnections() == 0) {
+                continue;
+            }
+            LOGGER.info("Pool {}: active {}, idle {}, pending {}, total {}/{}; {} acquired, acquire p50 {} µs p99 {} µs max {} µs; "
+                            + "hold p50 {} µs p99 {} µs max {} µs; {} failed acquisitions and {} leaks since start",
+                    statistics.getName(), statistics.getActiveConnections(), statistics.getIdleConnections(),
+                    statistics.getPendingThreads(), statistics.getTotalConnections(), statistics.getMaximumPoolSize(),
+                    acquireTime.getCount(), acquireTime.getMedianMicros(), acquireTime.getP99Micros(), acquireTime.getMaxMicros(),
+                    holdTime.getMedianMicros(), holdTime.getP99Micros(), holdTime.getMaxMicros(),
+                    statistics.getAcquireFailures(), statistics.getLeaks());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.upgrad.quora.service.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The datasource of the application: the primary from spring.datasource and the read replicas listed in
+ * quora.datasource.replica-urls, which share its credentials and its spring.datasource.hikari settings.
+ * Read-only transactions are routed to the replicas by ReplicaRoutingJpaDialect.
+ * Every pool is wrapped in an InstrumentedDataSource, whose statistics ConnectionPoolMonitor logs and whose slow
+ * statements SlowQueryLog logs.
+ */
+@Configuration
+public class DataSourceConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataSourceConfiguration.class);
+
+    private static final String HIKARI_PROPERTIES = "spring.datasource.hikari";
+
+    @Value("${quora.datasource.replica-urls:}")
+    private String replicaUrls;
+
+    @Value("${quora.datasource.replica-health.timeout-ms:1000}")
+    private long healthTimeoutMillis;
+
+    @Value("${quora.datasource.replica-health.max-lag-ms:5000}")
+    private long maxLagMillis;
+
+    @Value("${quora.datasource.read-your-writes-ms:5000}")
+    private long readYourWritesMillis;
+
+    @Value("${quora.datasource.instrumentation.capture-stacks:false}")
+    private boolean captureStacks;
+
+    @Value("${quora.datasource.slow-query.threshold-ms:200}")
+    private long slowQueryThresholdMillis;
+
+    @Value("${quora.datasource.slow-query.log-bind-values:false}")
+    private boolean logBindValues;
+
+    @Value("${quora.datasource.slow-query.explain.after:0}")
+    private int explainAfter;
+
+    @Value("${quora.datasource.slow-query.explain.interval-ms:600000}")
+    private long explainIntervalMillis;
+
+    @Value("${quora.datasource.slow-query.explain.timeout-ms:30000}")
+    private long explainTimeoutMillis;
+
+    @Bean
+    public SlowQueryLog slowQueryLog() {
+        return new SlowQueryLog(slowQueryThresholdMillis, logBindValues, explainAfter, explainIntervalMillis, explainTimeoutMillis);
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker() {
+        return new ReadYourWritesTracker(readYourWritesMillis);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource dataSource(final DataSourceProperties properties, final Environment environment,
+                                               final ReadYourWritesTracker readYourWritesTracker, final SlowQueryLog slowQueryLog) {
+        final Binder binder = Binder.get(environment);
+        final HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind(HIKARI_PROPERTIES, Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+        final InstrumentedDataSource instrumentedPrimary = new InstrumentedDataSource("primary", primary, captureStacks, slowQueryLog);
+
+        final List<Replica> replicas = new ArrayList<>();
+        for (String url : StringUtils.split(replicaUrls, ',')) {
+            final HikariDataSource pool = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .build();
+            binder.bind(HIKARI_PROPERTIES, Bindable.ofInstance(pool));
+            final String name = "replica-" + (replicas.size() + 1);
+            pool.setPoolName(name);
+            pool.setReadOnly(true);
+            // a replica which is down must not hold up the startup or a request for longer than a health check
+            pool.setConnectionTimeout(healthTimeoutMillis);
+            pool.setInitializationFailTimeout(-1);
+            replicas.add(new Replica(name, new InstrumentedDataSource(name, pool, captureStacks, slowQueryLog)));
+        }
+        if (!replicas.isEmpty() && readYourWritesMillis < maxLagMillis) {
+            LOGGER.warn("quora.datasource.read-your-writes-ms {} is below the replica max-lag-ms {}, a client may not read its own writes",
+                    readYourWritesMillis, maxLagMillis);
+        }
+        return new ReplicaRoutingDataSource(instrumentedPrimary, replicas, readYourWritesTracker, maxLagMillis, healthTimeoutMillis);
+    }
+
+    /*
+     * Installs ReplicaRoutingJpaDialect on the entity manager factory, whose dialect the transaction manager uses, and
+     * ReplicaRoutingStatementInspector, which tells the routing whether a transaction wrote.
+     * Static, so that it does not pull this configuration into the creation of the post processors.
+     */
+    @Bean
+    public static BeanPostProcessor replicaRoutingJpaDialectInstaller() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(final Object bean, final String beanName) {
+                if (bean instanceof LocalContainerEntityManagerFactoryBean) {
+                    final LocalContainerEntityManagerFactoryBean factoryBean = (LocalContainerEntityManagerFactoryBean) bean;
+                    if (factoryBean.getDataSource() instanceof ReplicaRoutingDataSource) {
+                        final ReplicaRoutingDataSource routingDataSource = (ReplicaRoutingDataSource) factoryBean.getDataSource();
+                        factoryBean.setJpaDialect(new ReplicaRoutingJpaDialect(routingDataSource));
+                        factoryBean.getJpaPropertyMap().put(AvailableSettings.STATEMENT_INSPECTOR, new ReplicaRoutingStatementInspector(routingDataSource));
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,282 @@
+package com.upgrad.quora.service.datasource;
+
+import com.upgrad.quora.service.common.ConnectionCallerStatistics;
+import com.upgrad.quora.service.common.ConnectionPoolStatistics;
+import com.upgrad.quora.service.common.LatencyHistogram;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * A connection pool which measures how long each connection took to acquire and how long it was held until closed.
+ * Every transaction takes its own connection and returns it when it ends, since spring.jpa.open-in-view is off, so the
+ * hold time is the length of the transaction; a transaction which streams its rows to the client holds it until the
+ * last one is written.
+ * Every connection in use is tracked with its caller and thread, so that a connection held longer than the leak
+ * threshold can be reported with the stack of the thread holding it, and with the stack which acquired it when
+ * acquisition stacks are captured. The caller of a transaction is its business service method, named by
+ * ReplicaRoutingJpaDialect before the connection is acquired; other connections are attributed to the first class
+ * of the application on the acquisition stack when it is captured.
+ * The statements of the connections are timed by the SlowQueryLog, which names their caller the same way.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InstrumentedDataSource.class);
+
+    private static final String APPLICATION_PACKAGE = "com.upgrad.quora.";
+
+    private static final String NON_TRANSACTIONAL_CALLER = "non-transactional";
+
+    // name of the transaction which is about to acquire a connection on the current thread
+    private static final ThreadLocal<String> TRANSACTION_CALLER = new ThreadLocal<>();
+
+    private final String name;
+
+    private final HikariDataSource pool;
+
+    private final boolean captureStacks;
+
+    private final SlowQueryLog slowQueryLog;
+
+    private final LatencyHistogram acquireTime = new LatencyHistogram();
+
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+
+    private final AtomicLong acquireFailures = new AtomicLong();
+
+    private final AtomicLong leaks = new AtomicLong();
+
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, CallerCounters> callers = new ConcurrentHashMap<>();
+
+    /*
+     * @param captureStacks whether to capture the stack of every acquisition, for the origin of leaked connections,
+     *                      which costs tens of microseconds per connection under the stack of a web request
+     */
+    public InstrumentedDataSource(final String name, final HikariDataSource pool, final boolean captureStacks, final SlowQueryLog slowQueryLog) {
+        super(pool);
+        this.name = name;
+        this.pool = pool;
+        this.captureStacks = captureStacks;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    /*
+     * Attributes the connections the current thread acquires to the transaction, until clearTransactionCaller.
+     * @param transactionName fully qualified method name Spring gives a transaction
+     */
+    static void setTransactionCaller(final String transactionName) {
+        if (transactionName != null) {
+            final int classStart = transactionName.lastIndexOf('.', transactionName.lastIndexOf('.') - 1);
+            TRANSACTION_CALLER.set(transactionName.substring(classStart + 1));
+        }
+    }
+
+    static void clearTransactionCaller() {
+        TRANSACTION_CALLER.remove();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public HikariDataSource getPool() {
+        return pool;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final long start = System.nanoTime();
+        final Connection connection;
+        try {
+            connection = pool.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            acquireFailures.incrementAndGet();
+            throw e;
+        }
+        final long acquiredAt = System.nanoTime();
+        acquireTime.recordNanos(acquiredAt - start);
+
+        final StackTraceElement[] stack = captureStacks ? new Throwable().getStackTrace() : null;
+        final String transactionCaller = TRANSACTION_CALLER.get();
+        final Lease lease = new Lease(acquiredAt, Thread.currentThread(), stack, transactionCaller != null ? transactionCaller : caller(stack));
+        leases.add(lease);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new LeasedConnection(connection, lease));
+    }
+
+    /*
+     * Reports the connections which have been held longer than the threshold and not reported yet.
+     * @param exemptCallers callers expected to hold their connection for long, whose connections are never reported
+     * @return number of connections reported
+     */
+    public int detectLeaks(final long thresholdMillis, final Set<String> exemptCallers) {
+        final long now = System.nanoTime();
+        int reported = 0;
+        for (Lease lease : leases) {
+            final long heldMillis = (now - lease.acquiredAt) / 1_000_000;
+            if (heldMillis > thresholdMillis && !exemptCallers.contains(lease.caller) && lease.leaked.compareAndSet(false, true)) {
+                leaks.incrementAndGet();
+                callerCounters(lease.caller).leaks.increment();
+                // where the connection was taken if that was captured, otherwise where its thread is now
+                final Throwable origin = new Throwable(lease.stack != null ? "Connection acquired here" : "Thread " + lease.thread.getName() + " is here now");
+                origin.setStackTrace(lease.stack != null ? lease.stack : lease.thread.getStackTrace());
+                LOGGER.warn("Connection of pool {} held for {} ms by {} on thread {}, which may be a leak",
+                        name, heldMillis, lease.caller, lease.thread.getName(), origin);
+                reported++;
+            }
+        }
+        return reported;
+    }
+
+    public ConnectionPoolStatistics getStatistics() {
+        final HikariPoolMXBean poolBean = pool.isClosed() ? null : pool.getHikariPoolMXBean();
+        final List<ConnectionCallerStatistics> callerStatistics = callers.entrySet().stream()
+                .map(entry -> entry.getValue().getStatistics(entry.getKey()))
+                .sorted(Comparator.comparingLong(ConnectionCallerStatistics::getTotalHoldMicros).reversed())
+                .collect(Collectors.toList());
+        return new ConnectionPoolStatistics(name,
+                poolBean == null ? 0 : poolBean.getActiveConnections(),
+                poolBean == null ? 0 : poolBean.getIdleConnections(),
+                poolBean == null ? 0 : poolBean.getThreadsAwaitingConnection(),
+                poolBean == null ? 0 : poolBean.getTotalConnections(),
+                pool.getMaximumPoolSize(), acquireFailures.get(), leaks.get(),
+                acquireTime.getStatistics(), holdTime.getStatistics(), callerStatistics);
+    }
+
+    private void release(final Lease lease) {
+        leases.remove(lease);
+        final long heldNanos = System.nanoTime() - lease.acquiredAt;
+        holdTime.recordNanos(heldNanos);
+        final CallerCounters counters = callerCounters(lease.caller);
+        counters.connections.increment();
+        counters.totalHoldMicros.add(heldNanos / 1000);
+        counters.maxHoldMicros.accumulateAndGet(heldNanos / 1000, Math::max);
+        if (lease.leaked.get()) {
+            LOGGER.info("Connection of pool {} reported as leaked by {} was returned after {} ms", name, lease.caller, heldNanos / 1_000_000);
+        }
+    }
+
+    private CallerCounters callerCounters(final String caller) {
+        return callers.computeIfAbsent(caller, key -> new CallerCounters());
+    }
+
+    // First frame of the application outside this package, with the class name a Spring proxy gave it stripped of its suffix
+    private static String caller(final StackTraceElement[] stack) {
+        if (stack == null) {
+            return NON_TRANSACTIONAL_CALLER;
+        }
+        for (StackTraceElement frame : stack) {
+            final String className = frame.getClassName();
+            if (className.startsWith(APPLICATION_PACKAGE) && !className.startsWith(InstrumentedDataSource.class.getPackage().getName())) {
+                final int proxySuffix = className.indexOf("$$");
+                final String declaringClass = proxySuffix < 0 ? className : className.substring(0, proxySuffix);
+                return declaringClass.substring(declaringClass.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+            }
+        }
+        return NON_TRANSACTIONAL_CALLER;
+    }
+
+    // A connection taken from the pool and not closed yet
+    private static class Lease {
+
+        private final long acquiredAt;
+
+        private final Thread thread;
+
+        // null unless acquisition stacks are captured
+        private final StackTraceElement[] stack;
+
+        private final String caller;
+
+        private final AtomicBoolean leaked = new AtomicBoolean();
+
+        private Lease(final long acquiredAt, final Thread thread, final StackTraceElement[] stack, final String caller) {
+            this.acquiredAt = acquiredAt;
+            this.thread = thread;
+            this.stack = stack;
+            this.caller = caller;
+        }
+    }
+
+    private static class CallerCounters {
+
+        private final LongAdder connections = new LongAdder();
+
+        private final LongAdder totalHoldMicros = new LongAdder();
+
+        private final AtomicLong maxHoldMicros = new AtomicLong();
+
+        private final LongAdder leaks = new LongAdder();
+
+        private ConnectionCallerStatistics getStatistics(final String caller) {
+            return new ConnectionCallerStatistics(caller, connections.sum(), totalHoldMicros.sum(), maxHoldMicros.get(), leaks.sum());
+        }
+    }
+
+    // Ends the lease when the connection is closed, the first close only, passes every other call to the pooled connection
+    // and hands the statements it creates to the slow query log
+    private class LeasedConnection implements InvocationHandler {
+
+        private final Connection connection;
+
+        private final Lease lease;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private LeasedConnection(final Connection connection, final Lease lease) {
+            this.connection = connection;
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Instrumented " + connection;
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        release(lease);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            final Object result;
+            try {
+                result = method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            if (result instanceof Statement && slowQueryLog.isEnabled()) {
+                final String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return slowQueryLog.wrap((Statement) result, method.getReturnType(), sql, lease.caller, InstrumentedDataSource.this);
+            }
+            return result;
+        }
+    }
+}
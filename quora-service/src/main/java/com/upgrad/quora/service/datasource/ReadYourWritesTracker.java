@@ -0,0 +1,69 @@
+package com.upgrad.quora.service.datasource;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which clients wrote recently, so that their reads go to the primary until the replicas have caught up.
+ * A client is identified by the key of the request it sends, the access token, which the web layer sets for the
+ * current thread with setClient. Requests without a key are never held on the primary.
+ */
+public class ReadYourWritesTracker {
+
+    private final ThreadLocal<String> currentClient = new ThreadLocal<>();
+
+    // client key -> System.nanoTime() until which the reads of the client go to the primary
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+
+    private final long windowNanos;
+
+    public ReadYourWritesTracker(final long windowMillis) {
+        this.windowNanos = windowMillis * 1_000_000L;
+    }
+
+    public void setClient(final String clientKey) {
+        currentClient.set(clientKey);
+    }
+
+    public void clearClient() {
+        currentClient.remove();
+    }
+
+    /*
+     * Holds the reads of the current client on the primary for the window, counted from now.
+     */
+    public void recordWrite() {
+        recordWrite(currentClient.get());
+    }
+
+    /*
+     * Holds the reads of the given client on the primary for the window, counted from now.
+     * Used when a write creates the key the client sends next, such as the access token of a signin.
+     */
+    public void recordWrite(final String clientKey) {
+        if (clientKey != null && windowNanos > 0) {
+            stickyUntil.put(clientKey, System.nanoTime() + windowNanos);
+        }
+    }
+
+    /*
+     * @return whether the current client wrote within the window, so that a replica may not have its write yet
+     */
+    public boolean isSticky() {
+        final String clientKey = currentClient.get();
+        if (clientKey == null) {
+            return false;
+        }
+        final Long until = stickyUntil.get(clientKey);
+        return until != null && until - System.nanoTime() > 0;
+    }
+
+    // Drops the clients whose window has passed, so the map only holds the clients which wrote in the last minute or so
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        final long now = System.nanoTime();
+        stickyUntil.values().removeIf(until -> until - now <= 0);
+    }
+}
@@ -0,0 +1,63 @@
+package com.upgrad.quora.service.datasource;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A read replica with its own connection pool and the result of its last health check.
+ * A replica receives no reads until a check has found it healthy.
+ */
+public class Replica {
+
+    private final String name;
+
+    private final InstrumentedDataSource dataSource;
+
+    private final AtomicLong readTransactions = new AtomicLong();
+
+    private volatile boolean healthy;
+
+    private volatile long lagMillis = -1;
+
+    public Replica(final String name, final InstrumentedDataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public InstrumentedDataSource getDataSource() {
+        return dataSource;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    void setHealthy(final boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    /*
+     * @return how far the replica was behind the primary at its last check, -1 if it could not be checked
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    void setLagMillis(final long lagMillis) {
+        this.lagMillis = lagMillis;
+    }
+
+    /*
+     * @return number of read-only transactions which were routed to the replica
+     */
+    public long getReadTransactions() {
+        return readTransactions.get();
+    }
+
+    void countReadTransaction() {
+        readTransactions.incrementAndGet();
+    }
+}
@@ -0,0 +1,208 @@
+package com.upgrad.quora.service.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the connections of read-only transactions to a healthy read replica and every other connection to the primary.
+ * The replica of a transaction is chosen when it begins, see ReplicaRoutingJpaDialect, round robin over the replicas
+ * which passed their last health check. A client which committed a write within the read-your-writes window reads from
+ * the primary.
+ * Without replicas every connection comes from the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // How far a standby is behind: zero when it has replayed all the WAL it received, or when it is not a standby at all
+    private static final String LAG_QUERY = "select case when pg_is_in_recovery() and pg_last_wal_receive_lsn() is distinct from pg_last_wal_replay_lsn() "
+            + "then coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000, 0) else 0 end";
+
+    private final InstrumentedDataSource primary;
+
+    private final List<Replica> replicas;
+
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    private final long maxLagMillis;
+
+    private final int healthTimeoutSeconds;
+
+    private final ThreadLocal<Replica> currentReplica = new ThreadLocal<>();
+
+    // set once the transaction of the current thread prepared a statement which may write
+    private final ThreadLocal<Boolean> currentWrite = new ThreadLocal<>();
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private volatile Replica[] healthyReplicas = new Replica[0];
+
+    /*
+     * @param maxLagMillis a replica further behind the primary than this gets no reads
+     * @param healthTimeoutMillis time a health check may take before the replica counts as down
+     */
+    public ReplicaRoutingDataSource(final InstrumentedDataSource primary, final List<Replica> replicas, final ReadYourWritesTracker readYourWritesTracker,
+                                    final long maxLagMillis, final long healthTimeoutMillis) {
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.maxLagMillis = maxLagMillis;
+        this.healthTimeoutSeconds = (int) Math.max(1, (healthTimeoutMillis + 999) / 1000);
+
+        final Map<Object, Object> targets = new HashMap<>();
+        for (Replica replica : replicas) {
+            targets.put(replica.getName(), replica.getDataSource());
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    public InstrumentedDataSource getPrimary() {
+        return primary;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /*
+     * @return the pool of the primary followed by those of the replicas
+     */
+    public List<InstrumentedDataSource> getPools() {
+        final List<InstrumentedDataSource> pools = new ArrayList<>();
+        pools.add(primary);
+        for (Replica replica : replicas) {
+            pools.add(replica.getDataSource());
+        }
+        return pools;
+    }
+
+    /*
+     * Chooses the replica for the read-only transaction which begins on the current thread.
+     * @return the replica, or null when the transaction reads from the primary because no replica is healthy
+     *         or the client wrote within the read-your-writes window
+     */
+    public Replica routeReadOnlyTransaction() {
+        final Replica[] healthy = healthyReplicas;
+        if (healthy.length == 0 || readYourWritesTracker.isSticky()) {
+            return null;
+        }
+        final Replica replica = healthy[Math.floorMod(nextReplica.getAndIncrement(), healthy.length)];
+        replica.countReadTransaction();
+        currentReplica.set(replica);
+        return replica;
+    }
+
+    /*
+     * Notes a statement the transaction of the current thread prepared, see ReplicaRoutingStatementInspector.
+     * Every statement but a select may write, a conditional update or delete counts even when it matches no row.
+     */
+    public void statementPrepared(final String sql) {
+        if (!replicas.isEmpty() && currentWrite.get() == null && !SlowQueryLog.isSelect(sql)) {
+            currentWrite.set(Boolean.TRUE);
+        }
+    }
+
+    /*
+     * Ends the routing of the transaction of the current thread.
+     * @param committed whether it committed; the client of a committed transaction which prepared a statement that may
+     *        write reads from the primary for the read-your-writes window, a rollback or a read leaves it on the replicas
+     */
+    public void transactionCompleted(final boolean committed) {
+        currentReplica.remove();
+        final boolean wrote = currentWrite.get() != null;
+        currentWrite.remove();
+        if (committed && wrote) {
+            readYourWritesTracker.recordWrite();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        final Replica replica = currentReplica.get();
+        return replica == null ? null : replica.getName();
+    }
+
+    // A replica which cannot hand out a connection is taken out of the rotation and the transaction reads from the primary
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
+            return super.getConnection();
+        } catch (SQLException e) {
+            final Replica replica = currentReplica.get();
+            if (replica == null) {
+                throw e;
+            }
+            LOGGER.warn("Replica {} is down, reading from the primary until it passes a health check: {}", replica.getName(), e.getMessage());
+            markDown(replica);
+            currentReplica.remove();
+            return primary.getConnection();
+        }
+    }
+
+    /*
+     * Checks every replica and puts the ones which answer within the timeout and are not too far behind into the rotation.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${quora.datasource.replica-health.interval-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            final boolean wasHealthy = replica.isHealthy();
+            long lagMillis = -1;
+            try (Connection connection = replica.getDataSource().getPool().getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(healthTimeoutSeconds);
+                try (ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                    resultSet.next();
+                    lagMillis = resultSet.getLong(1);
+                }
+            } catch (SQLException e) {
+                LOGGER.debug("Health check of replica {} failed", replica.getName(), e);
+            }
+            replica.setLagMillis(lagMillis);
+            replica.setHealthy(lagMillis >= 0 && lagMillis <= maxLagMillis);
+            if (wasHealthy != replica.isHealthy()) {
+                LOGGER.info("Replica {} is {}, lag {} ms", replica.getName(), replica.isHealthy() ? "up" : "down", lagMillis);
+            }
+        }
+        updateHealthyReplicas();
+    }
+
+    private void markDown(final Replica replica) {
+        replica.setHealthy(false);
+        updateHealthyReplicas();
+    }
+
+    private void updateHealthyReplicas() {
+        healthyReplicas = replicas.stream().filter(Replica::isHealthy).toArray(Replica[]::new);
+    }
+
+    // Closes the pools when the application context shuts down
+    public void close() {
+        for (Replica replica : replicas) {
+            replica.getDataSource().getPool().close();
+        }
+        primary.getPool().close();
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicaRoutingDataSource" + Arrays.toString(replicas.stream().map(Replica::getName).toArray());
+    }
+}
@@ -0,0 +1,106 @@
+package com.upgrad.quora.service.datasource;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import java.sql.SQLException;
+
+/**
+ * Chooses the datasource of a transaction when it begins, before Hibernate takes its connection.
+ * A read-only transaction asks the routing datasource for a replica, every other transaction stays on the primary and
+ * holds the reads of its client on the primary for the read-your-writes window once it commits a write. Whether it
+ * committed is told by a synchronization on the Hibernate transaction, whether it wrote by
+ * ReplicaRoutingStatementInspector.
+ * Entities read from a replica may be older than the primary, so they are only taken from the second-level cache and
+ * never put into it.
+ * The routing only holds while every transaction takes its own connection, which is why spring.jpa.open-in-view is off:
+ * an entity manager kept open for the request would keep its first connection for every later transaction.
+ */
+public class ReplicaRoutingJpaDialect extends HibernateJpaDialect {
+
+    private final ReplicaRoutingDataSource routingDataSource;
+
+    public ReplicaRoutingJpaDialect(final ReplicaRoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Override
+    public Object beginTransaction(final EntityManager entityManager, final TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        final Session session = getSession(entityManager);
+        final boolean onReplica = definition.isReadOnly() && routingDataSource.routeReadOnlyTransaction() != null;
+        final CacheMode previousCacheMode = session.getCacheMode();
+        if (onReplica) {
+            session.setCacheMode(CacheMode.GET);
+        }
+        // the connection Hibernate acquires now is held for the whole transaction, named after its service method
+        InstrumentedDataSource.setTransactionCaller(definition.getName());
+        try {
+            final RoutedTransactionData routed = new RoutedTransactionData(super.beginTransaction(entityManager, definition),
+                    session, onReplica ? previousCacheMode : null);
+            if (!definition.isReadOnly()) {
+                session.getTransaction().registerSynchronization(routed);
+            }
+            return routed;
+        } catch (SQLException | RuntimeException e) {
+            session.setCacheMode(previousCacheMode);
+            routingDataSource.transactionCompleted(false);
+            throw e;
+        } finally {
+            InstrumentedDataSource.clearTransactionCaller();
+        }
+    }
+
+    @Override
+    public void cleanupTransaction(final Object transactionData) {
+        if (!(transactionData instanceof RoutedTransactionData)) {
+            super.cleanupTransaction(transactionData);
+            return;
+        }
+        final RoutedTransactionData routed = (RoutedTransactionData) transactionData;
+        try {
+            super.cleanupTransaction(routed.hibernateTransactionData);
+        } finally {
+            if (routed.previousCacheMode != null && routed.session.isOpen()) {
+                routed.session.setCacheMode(routed.previousCacheMode);
+            }
+            routingDataSource.transactionCompleted(routed.committed);
+        }
+    }
+
+    // What HibernateJpaDialect keeps for the transaction, with what the routing changed on the session
+    private static class RoutedTransactionData implements Synchronization {
+
+        private final Object hibernateTransactionData;
+
+        private final Session session;
+
+        // set when the transaction reads from a replica
+        private final CacheMode previousCacheMode;
+
+        // set when a read-write transaction committed, read-only transactions are never registered
+        private boolean committed;
+
+        private RoutedTransactionData(final Object hibernateTransactionData, final Session session, final CacheMode previousCacheMode) {
+            this.hibernateTransactionData = hibernateTransactionData;
+            this.session = session;
+            this.previousCacheMode = previousCacheMode;
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCompletion(final int status) {
+            committed = status == Status.STATUS_COMMITTED;
+        }
+    }
+}
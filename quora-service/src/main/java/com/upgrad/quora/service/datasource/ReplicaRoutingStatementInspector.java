@@ -0,0 +1,23 @@
+package com.upgrad.quora.service.datasource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Tells the routing datasource about every statement Hibernate prepares, so that it knows whether the transaction of
+ * the current thread may have written. It is set as hibernate.session_factory.statement_inspector and leaves the SQL
+ * as it is.
+ */
+public class ReplicaRoutingStatementInspector implements StatementInspector {
+
+    private final ReplicaRoutingDataSource routingDataSource;
+
+    public ReplicaRoutingStatementInspector(final ReplicaRoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Override
+    public String inspect(final String sql) {
+        routingDataSource.statementPrepared(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,439 @@
+package com.upgrad.quora.service.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Logs the statements which take longer than the threshold to execute, with the query Hibernate names in the comment
+ * it puts in front of the SQL (hibernate.use_sql_comments), the execution time, the rows, the business method of the
+ * transaction, the pool and, when enabled, the bind values. The time is that of the execution alone, so a streamed
+ * result which is read slowly is not slow, but its rows are counted until the result set is closed.
+ * A bind value is logged only if the column it is compared with or inserted into can be told from the SQL and is not
+ * a password, salt, access token, email or contact number; every other value is masked.
+ * A select which has been slow explain-after times is run again under EXPLAIN (ANALYZE, BUFFERS), in a read-only
+ * transaction on the pool it ran on and off the request thread, at most once per explain interval. Its plan is logged
+ * to the SlowQueryLog.plans logger, which logback-spring.xml writes to a rotating file.
+ */
+public class SlowQueryLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private static final Logger PLAN_LOGGER = LoggerFactory.getLogger(SlowQueryLog.class.getName() + ".plans");
+
+    private static final String UNNAMED_QUERY = "unnamed";
+
+    // statements tracked for explain, Hibernate generates a bounded set of SQL but native queries may not be
+    private static final int MAX_TRACKED_STATEMENTS = 1000;
+
+    private static final int MAX_BIND_VALUE_LENGTH = 64;
+
+    // bind values of columns whose name contains one of these are masked
+    private static final List<String> SENSITIVE_COLUMNS = Arrays.asList("password", "salt", "access_token", "email", "contactnumber");
+
+    private static final String MASKED_VALUE = "****";
+
+    private static final Pattern INSERT_COLUMNS = Pattern.compile("insert\\s+into\\s+[\\w.]+\\s*\\(([^)]*)\\)\\s*values\\s*\\(",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][\\w.$]*");
+
+    // words which may stand between a column and its parameter
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList("and", "or", "not", "in", "is", "like", "ilike",
+            "between", "null", "any", "all", "escape", "limit", "offset", "asc", "desc", "first", "last", "nulls", "rows", "only", "fetch", "next"));
+
+    private final long thresholdNanos;
+
+    private final boolean logBindValues;
+
+    private final int explainAfter;
+
+    private final long explainIntervalNanos;
+
+    private final int explainTimeoutSeconds;
+
+    private final Map<String, Offender> offenders = new ConcurrentHashMap<>();
+
+    // one plan at a time, further requests are dropped while the queue is full
+    private final ThreadPoolExecutor explainExecutor;
+
+    /*
+     * @param thresholdMillis statements taking longer are logged, a negative threshold turns the log off
+     * @param explainAfter a select is explained once it has been slow this many times, 0 never explains
+     */
+    public SlowQueryLog(final long thresholdMillis, final boolean logBindValues, final int explainAfter,
+                        final long explainIntervalMillis, final long explainTimeoutMillis) {
+        this.thresholdNanos = thresholdMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.logBindValues = logBindValues;
+        this.explainAfter = explainAfter;
+        this.explainIntervalNanos = TimeUnit.MILLISECONDS.toNanos(explainIntervalMillis);
+        this.explainTimeoutSeconds = (int) Math.max(1, (explainTimeoutMillis + 999) / 1000);
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16), runnable -> {
+            final Thread thread = new Thread(runnable, "slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    public boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    /*
+     * Times the executions of a statement the pool handed out.
+     * @param type interface of the statement, Statement, PreparedStatement or CallableStatement
+     * @param sql SQL it was prepared with, null for a plain statement which gets its SQL on execution
+     */
+    Statement wrap(final Statement statement, final Class<?> type, final String sql, final String caller, final InstrumentedDataSource pool) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type},
+                new TimedStatement(statement, sql, caller, pool));
+    }
+
+    // Stops the explain thread when the application context shuts down
+    public void close() {
+        explainExecutor.shutdownNow();
+    }
+
+    // The name Hibernate gives the query in its comment: the named query, or what it does to which entity
+    static String queryName(final String sql) {
+        if (sql.startsWith("/* ")) {
+            final int end = sql.indexOf("*/");
+            if (end > 0) {
+                return sql.substring(3, end).trim();
+            }
+        }
+        return UNNAMED_QUERY;
+    }
+
+    static boolean isSelect(final String sql) {
+        final String statement = sql.startsWith("/*") && sql.indexOf("*/") > 0 ? sql.substring(sql.indexOf("*/") + 2).trim() : sql.trim();
+        return statement.regionMatches(true, 0, "select", 0, "select".length());
+    }
+
+    private void slowExecution(final SlowExecution execution) {
+        LOGGER.warn("Slow query {} took {} ms for {} rows, called by {} on pool {}: {}{}", queryName(execution.sql),
+                execution.nanos / 1_000_000, execution.rows >= 0 ? execution.rows : "unknown", execution.caller, execution.pool.getName(),
+                execution.sql, logBindValues && !execution.binds.isEmpty() ? " binds " + describe(execution.sql, execution.binds) : "");
+        if (explainAfter <= 0 || !isSelect(execution.sql)) {
+            return;
+        }
+        Offender offender = offenders.get(execution.sql);
+        if (offender == null) {
+            if (offenders.size() >= MAX_TRACKED_STATEMENTS) {
+                return;
+            }
+            offender = offenders.computeIfAbsent(execution.sql, key -> new Offender());
+        }
+        if (offender.slowExecutions.incrementAndGet() >= explainAfter && offender.claimExplain(System.nanoTime(), explainIntervalNanos)) {
+            explainExecutor.execute(() -> explain(execution));
+        }
+    }
+
+    private void explain(final SlowExecution execution) {
+        final StringBuilder plan = new StringBuilder();
+        try (Connection connection = execution.pool.getPool().getConnection()) {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + execution.sql)) {
+                statement.setQueryTimeout(explainTimeoutSeconds);
+                for (Map.Entry<Integer, Object> bind : execution.binds.entrySet()) {
+                    statement.setObject(bind.getKey(), bind.getValue());
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.append('\n').append(resultSet.getString(1));
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Could not explain slow query {}: {}", queryName(execution.sql), e.getMessage());
+            return;
+        }
+        PLAN_LOGGER.info("Plan of slow query {} called by {} on pool {}, slow {} times: {}{}{}", queryName(execution.sql), execution.caller,
+                execution.pool.getName(), offenders.get(execution.sql).slowExecutions.get(), execution.sql,
+                logBindValues && !execution.binds.isEmpty() ? " binds " + describe(execution.sql, execution.binds) : "", plan);
+    }
+
+    // Values of sensitive or unknown columns are masked, long values such as answers are cut short and binary values are shown in hex
+    static String describe(final String sql, final Map<Integer, Object> binds) {
+        final List<String> columns = bindColumns(sql);
+        final StringBuilder text = new StringBuilder("[");
+        for (Map.Entry<Integer, Object> bind : binds.entrySet()) {
+            final String column = bind.getKey() <= columns.size() ? columns.get(bind.getKey() - 1) : null;
+            final String value = isSensitive(column) ? MASKED_VALUE
+                    : bind.getValue() instanceof byte[] ? hex((byte[]) bind.getValue()) : String.valueOf(bind.getValue());
+            text.append(text.length() > 1 ? ", " : "").append(bind.getKey()).append('=')
+                    .append(value.length() > MAX_BIND_VALUE_LENGTH ? value.substring(0, MAX_BIND_VALUE_LENGTH) + "..." : value);
+        }
+        return text.append(']').toString();
+    }
+
+    private static boolean isSensitive(final String column) {
+        if (column == null) {
+            return true;
+        }
+        final String name = column.toLowerCase(Locale.ROOT);
+        return SENSITIVE_COLUMNS.stream().anyMatch(name::contains);
+    }
+
+    /*
+     * The column of every parameter of the SQL, in order, null where it cannot be told.
+     * An insert binds its values to its column list. Elsewhere a parameter belongs to the last column before it which
+     * is neither a keyword nor a function, and a parameter with nothing but punctuation before it, as in "in (?, ?)",
+     * to the column of the one before.
+     */
+    static List<String> bindColumns(final String sql) {
+        final List<String> columns = new ArrayList<>();
+        final Matcher insert = INSERT_COLUMNS.matcher(sql);
+        final String[] insertColumns = insert.find() ? insert.group(1).split(",") : null;
+        final int valuesStart = insertColumns == null ? -1 : insert.end();
+        int segmentStart = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            final char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                final String previous = columns.isEmpty() ? null : columns.get(columns.size() - 1);
+                if (insertColumns != null && i >= valuesStart) {
+                    final int position = columns.size() - countParameters(sql.substring(0, valuesStart));
+                    columns.add(position >= 0 && position < insertColumns.length ? insertColumns[position].trim() : null);
+                } else {
+                    final String column = lastColumn(sql.substring(segmentStart, i));
+                    columns.add(column != null ? column : previous);
+                }
+                segmentStart = i + 1;
+            }
+        }
+        return columns;
+    }
+
+    private static int countParameters(final String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String lastColumn(final String segment) {
+        String column = null;
+        final Matcher identifier = IDENTIFIER.matcher(segment);
+        while (identifier.find()) {
+            final String word = identifier.group();
+            final boolean function = segment.substring(identifier.end()).trim().startsWith("(");
+            if (!function && !KEYWORDS.contains(word.toLowerCase(Locale.ROOT))) {
+                column = word;
+            }
+        }
+        return column;
+    }
+
+    private static String hex(final byte[] bytes) {
+        final StringBuilder text = new StringBuilder("\\x");
+        for (byte b : bytes) {
+            text.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return text.toString();
+    }
+
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    // How often a select has been slow and when it was last explained
+    private static class Offender {
+
+        private final AtomicLong slowExecutions = new AtomicLong();
+
+        // nanoTime of the last explain, 0 before the first
+        private final AtomicLong explainedAt = new AtomicLong();
+
+        private boolean claimExplain(final long now, final long intervalNanos) {
+            final long last = explainedAt.get();
+            return (last == 0 || now - last >= intervalNanos) && explainedAt.compareAndSet(last, now);
+        }
+    }
+
+    // An execution over the threshold, logged once its rows are known
+    private class SlowExecution {
+
+        private final String sql;
+
+        private final Map<Integer, Object> binds;
+
+        private final String caller;
+
+        private final InstrumentedDataSource pool;
+
+        private final long nanos;
+
+        private final AtomicBoolean logged = new AtomicBoolean();
+
+        private long rows = -1;
+
+        private SlowExecution(final String sql, final Map<Integer, Object> binds, final String caller, final InstrumentedDataSource pool, final long nanos) {
+            this.sql = sql;
+            this.binds = binds;
+            this.caller = caller;
+            this.pool = pool;
+            this.nanos = nanos;
+        }
+
+        private void log() {
+            if (logged.compareAndSet(false, true)) {
+                slowExecution(this);
+            }
+        }
+    }
+
+    // Records the bind values of a prepared statement and times its executions
+    private class TimedStatement implements InvocationHandler {
+
+        private final Statement statement;
+
+        private final String preparedSql;
+
+        private final String caller;
+
+        private final InstrumentedDataSource pool;
+
+        private final Map<Integer, Object> binds = new TreeMap<>();
+
+        // a slow query whose result set is still being read
+        private SlowExecution pending;
+
+        private TimedStatement(final Statement statement, final String preparedSql, final String caller, final InstrumentedDataSource pool) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+            this.caller = caller;
+            this.pool = pool;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "clearParameters":
+                    binds.clear();
+                    break;
+                case "close":
+                    logPending();
+                    break;
+                default:
+                    if (preparedSql != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        binds.put((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+                    }
+                    break;
+            }
+            if (!name.startsWith("execute")) {
+                return SlowQueryLog.invoke(statement, method, args);
+            }
+
+            logPending();
+            final long start = System.nanoTime();
+            final Object result = SlowQueryLog.invoke(statement, method, args);
+            final long nanos = System.nanoTime() - start;
+            if (nanos < thresholdNanos) {
+                return result;
+            }
+            final String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            final SlowExecution execution = new SlowExecution(sql, binds.isEmpty() ? Collections.emptyMap() : new TreeMap<>(binds), caller, pool, nanos);
+            if (result instanceof ResultSet) {
+                pending = execution;
+                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, new CountedResultSet((ResultSet) result, execution));
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                execution.rows = ((Number) result).longValue();
+            } else if (result instanceof int[]) {
+                execution.rows = 0;
+                for (int count : (int[]) result) {
+                    execution.rows += Math.max(count, 0);
+                }
+            } else if (Boolean.FALSE.equals(result)) {
+                execution.rows = statement.getUpdateCount();
+            }
+            execution.log();
+            return result;
+        }
+
+        private void logPending() {
+            if (pending != null) {
+                pending.log();
+                pending = null;
+            }
+        }
+    }
+
+    // Counts the rows of a slow query and logs it when the result set is closed
+    private static class CountedResultSet implements InvocationHandler {
+
+        private final ResultSet resultSet;
+
+        private final SlowExecution execution;
+
+        private CountedResultSet(final ResultSet resultSet, final SlowExecution execution) {
+            this.resultSet = resultSet;
+            this.execution = execution;
+            execution.rows = 0;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    execution.log();
+                    break;
+                default:
+                    break;
+            }
+            final Object result = SlowQueryLog.invoke(resultSet, method, args);
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                execution.rows++;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.upgrad.quora.service.dto;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Read-only projection of an answer, with the content of the question it answers, for list endpoints.
+ * It is built by constructor expressions in the answer list queries, so only these columns are selected
+ * and no AnswerEntity, QuestionEntity or UserEntity is loaded into the persistence context.
+ * The id and date are kept for the page cursor, the version for the If-Match header of a later edit.
+ */
+public class AnswerSummary {
+
+    private final long id;
+
+    private final String uuid;
+
+    private final String answer;
+
+    private final String questionContent;
+
+    private final int version;
+
+    private final ZonedDateTime date;
+
+    public AnswerSummary(final long id, final String uuid, final String answer, final String questionContent, final int version, final ZonedDateTime date) {
+        this.id = id;
+        this.uuid = uuid;
+        this.answer = answer;
+        this.questionContent = questionContent;
+        this.version = version;
+        this.date = date;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public String getQuestionContent() {
+        return questionContent;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+}
@@ -0,0 +1,87 @@
+package com.upgrad.quora.service.dto;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A question of the export with all its answers, oldest answer first.
+ * It is assembled from the consecutive QuestionExportRow rows of one question, so only one question is held at a time.
+ */
+public class QuestionExport {
+
+    private final String uuid;
+
+    private final String content;
+
+    private final ZonedDateTime date;
+
+    private final String userUuid;
+
+    private final List<Answer> answers = new ArrayList<Answer>();
+
+    public QuestionExport(final QuestionExportRow row) {
+        this.uuid = row.getQuestionUuid();
+        this.content = row.getQuestionContent();
+        this.date = row.getQuestionDate();
+        this.userUuid = row.getQuestionUserUuid();
+    }
+
+    public void addAnswer(final QuestionExportRow row) {
+        answers.add(new Answer(row.getAnswerUuid(), row.getAnswer(), row.getAnswerDate(), row.getAnswerUserUuid()));
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public String getUserUuid() {
+        return userUuid;
+    }
+
+    public List<Answer> getAnswers() {
+        return answers;
+    }
+
+    public static class Answer {
+
+        private final String uuid;
+
+        private final String answer;
+
+        private final ZonedDateTime date;
+
+        private final String userUuid;
+
+        private Answer(final String uuid, final String answer, final ZonedDateTime date, final String userUuid) {
+            this.uuid = uuid;
+            this.answer = answer;
+            this.date = date;
+            this.userUuid = userUuid;
+        }
+
+        public String getUuid() {
+            return uuid;
+        }
+
+        public String getAnswer() {
+            return answer;
+        }
+
+        public ZonedDateTime getDate() {
+            return date;
+        }
+
+        public String getUserUuid() {
+            return userUuid;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.upgrad.quora.service.dto;
+
+import java.time.ZonedDateTime;
+
+/**
+ * One row of the question export: a question joined with one of its answers, or with no answer at all.
+ * It is built by a constructor expression in the export query, so no entity is loaded into the persistence context.
+ * The answer fields are null for a question without answers.
+ */
+public class QuestionExportRow {
+
+    private final long questionId;
+
+    private final String questionUuid;
+
+    private final String questionContent;
+
+    private final ZonedDateTime questionDate;
+
+    private final String questionUserUuid;
+
+    private final String answerUuid;
+
+    private final String answer;
+
+    private final ZonedDateTime answerDate;
+
+    private final String answerUserUuid;
+
+    public QuestionExportRow(final long questionId, final String questionUuid, final String questionContent, final ZonedDateTime questionDate,
+                             final String questionUserUuid, final String answerUuid, final String answer, final ZonedDateTime answerDate,
+                             final String answerUserUuid) {
+        this.questionId = questionId;
+        this.questionUuid = questionUuid;
+        this.questionContent = questionContent;
+        this.questionDate = questionDate;
+        this.questionUserUuid = questionUserUuid;
+        this.answerUuid = answerUuid;
+        this.answer = answer;
+        this.answerDate = answerDate;
+        this.answerUserUuid = answerUserUuid;
+    }
+
+    public long getQuestionId() {
+        return questionId;
+    }
+
+    public String getQuestionUuid() {
+        return questionUuid;
+    }
+
+    public String getQuestionContent() {
+        return questionContent;
+    }
+
+    public ZonedDateTime getQuestionDate() {
+        return questionDate;
+    }
+
+    public String getQuestionUserUuid() {
+        return questionUserUuid;
+    }
+
+    public String getAnswerUuid() {
+        return answerUuid;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public ZonedDateTime getAnswerDate() {
+        return answerDate;
+    }
+
+    public String getAnswerUserUuid() {
+        return answerUserUuid;
+    }
+
+    public boolean hasAnswer() {
+        return answerUuid != null;
+    }
+}
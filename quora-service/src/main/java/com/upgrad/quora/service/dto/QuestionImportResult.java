@@ -0,0 +1,53 @@
+package com.upgrad.quora.service.dto;
+
+/**
+ * Outcome of one item of a bulk question import.
+ * An item is either created, and then carries the uuid of the new question, or rejected with the reason.
+ */
+public class QuestionImportResult {
+
+    private final int index;
+
+    private final String uuid;
+
+    private final String error;
+
+    private QuestionImportResult(final int index, final String uuid, final String error) {
+        this.index = index;
+        this.uuid = uuid;
+        this.error = error;
+    }
+
+    public static QuestionImportResult created(final int index, final String uuid) {
+        return new QuestionImportResult(index, uuid, null);
+    }
+
+    public static QuestionImportResult rejected(final int index, final String error) {
+        return new QuestionImportResult(index, null, error);
+    }
+
+    /**
+     * @return position of the item in the import, starting at 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return uuid of the created question, or null if the item was rejected
+     */
+    public String getUuid() {
+        return uuid;
+    }
+
+    /**
+     * @return why the item was rejected, or null if it was created
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isCreated() {
+        return error == null;
+    }
+}
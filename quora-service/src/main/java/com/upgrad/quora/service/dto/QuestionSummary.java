@@ -0,0 +1,50 @@
+package com.upgrad.quora.service.dto;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Read-only projection of a question for list endpoints.
+ * It is built by constructor expressions in the question list queries, so only these columns are selected
+ * and no QuestionEntity or UserEntity is loaded into the persistence context.
+ * The id and date are kept for the page cursor, the version for the If-Match header of a later edit.
+ */
+public class QuestionSummary {
+
+    private final long id;
+
+    private final String uuid;
+
+    private final String content;
+
+    private final int version;
+
+    private final ZonedDateTime date;
+
+    public QuestionSummary(final long id, final String uuid, final String content, final int version, final ZonedDateTime date) {
+        this.id = id;
+        this.uuid = uuid;
+        this.content = content;
+        this.version = version;
+        this.date = date;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+}
@@ -0,0 +1,49 @@
+package com.upgrad.quora.service.dto;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Read-only projection of the session an access token belongs to, with the user fields the authorization checks need.
+ * It is built by a constructor expression in the "userSessionByAccessToken" query, so no UserAuthEntity or UserEntity
+ * is loaded into the persistence context, and being immutable it is shared by every request the session cache serves.
+ */
+public class UserSession {
+
+    private final long userId;
+
+    private final String userUuid;
+
+    private final String role;
+
+    private final ZonedDateTime expiresAt;
+
+    private final ZonedDateTime logoutAt;
+
+    public UserSession(final long userId, final String userUuid, final String role, final ZonedDateTime expiresAt, final ZonedDateTime logoutAt) {
+        this.userId = userId;
+        this.userUuid = userUuid;
+        this.role = role;
+        this.expiresAt = expiresAt;
+        this.logoutAt = logoutAt;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public String getUserUuid() {
+        return userUuid;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public ZonedDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public ZonedDateTime getLogoutAt() {
+        return logoutAt;
+    }
+}
@@ -11,7 +11,24 @@ import java.time.ZonedDateTime;
         {
                 @NamedQuery(name = "answerEntityById", query = "select ae from AnswerEntity ae where ae.id = :id"),
                 @NamedQuery(name = "answerEntityByUuid", query = "select ae from AnswerEntity ae where ae.uuid = :uuid"),
-                @NamedQuery(name = "answerEntityByQuestionId", query = "select ae from AnswerEntity ae inner join ae.question qn where qn.uuid = :uuid"),
+                @NamedQuery(name = "answerSummariesByQuestionId", query = "select new com.upgrad.quora.service.dto.AnswerSummary(ae.id, ae.uuid, ae.answer, qn.content, ae.version, ae.date) from AnswerEntity ae inner join ae.question qn where qn.uuid = :uuid order by ae.date desc, ae.id desc"),
+                @NamedQuery(name = "answerSummariesByQuestionIdAfterCursor", query = "select new com.upgrad.quora.service.dto.AnswerSummary(ae.id, ae.uuid, ae.answer, qn.content, ae.version, ae.date) from AnswerEntity ae inner join ae.question qn where qn.uuid = :uuid and (ae.date, ae.id) < (:date, :id) order by ae.date desc, ae.id desc"),
+        }
+)
+@NamedNativeQueries(
+        {
+                // Deletes the answer only if the user owns it or is an admin and tells in the same round trip whether it existed
+                @NamedNativeQuery(name = "deleteAnswerByUuidIfPermitted", query = "with target as (select id, user_id from answer where uuid = cast(:uuid as uuid)), "
+                        + "deleted as (delete from answer where id in (select id from target where user_id = :userId or :admin) returning id) "
+                        + "select (select count(*) from target) as found, (select count(*) from deleted) as deleted"),
+                // Sets only the answer text, only if the user owns the answer and, unless :anyVersion, it still has :version.
+                // The version is compared on the updated row, so it is checked again when a concurrent edit commits first.
+                // Tells in the same round trip whether the answer existed and whether the user owns it.
+                @NamedNativeQuery(name = "editAnswerContentIfOwner", query = "with target as (select id, user_id from answer where uuid = cast(:uuid as uuid)), "
+                        + "updated as (update answer set ans = :content, version = version + 1 "
+                        + "where id in (select id from target where user_id = :userId) and (version = :version or :anyVersion) returning id, version) "
+                        + "select (select count(*) from target) as found, (select count(*) from target where user_id = :userId) as permitted, "
+                        + "(select count(*) from updated) as updated, (select max(id) from updated) as id, (select max(version) from updated) as version"),
         }
 )
 public class AnswerEntity {
@@ -23,7 +40,7 @@ public class AnswerEntity {
 
     @Column(name = "uuid")
     @NotNull
-    @Size(max = 200)
+    @Convert(converter = UuidAttributeConverter.class)
     private String uuid;
 
     @Column(name = "ans")
@@ -35,14 +52,19 @@ public class AnswerEntity {
     @NotNull
     private ZonedDateTime date;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private UserEntity user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "question_id")
     private QuestionEntity question;
 
+    // Raised by every edit of the answer. Null on a detached copy means the edit does not depend on the version it replaces
+    @Version
+    @Column(name = "version")
+    private Integer version;
+
     public long getId() {
         return id;
     }
@@ -90,4 +112,12 @@ public class AnswerEntity {
     public void setQuestion(QuestionEntity question) {
         this.question = question;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
@@ -1,5 +1,8 @@
 package com.upgrad.quora.service.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -11,21 +14,48 @@ import java.time.ZonedDateTime;
 @NamedQueries(
         {
                 @NamedQuery(name = "questionEntityById", query = "select qe from QuestionEntity qe where qe.id = :id"),
-                @NamedQuery(name = "questionEntityByUuid", query = "select qe from QuestionEntity qe where qe.uuid = :uuid"),
-                @NamedQuery(name = "questionByUserId", query = "select qe from QuestionEntity qe inner join qe.user usr where usr.uuid = :uuid"),
-                @NamedQuery(name = "allQuestions", query = "select qe from QuestionEntity qe"),
+                @NamedQuery(name = "questionEntityByUuid", query = "select qe from QuestionEntity qe where qe.uuid = :uuid", hints = {
+                        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                        @QueryHint(name = "org.hibernate.cacheRegion", value = "uuid-lookups")}),
+                @NamedQuery(name = "questionSummariesByUserId", query = "select new com.upgrad.quora.service.dto.QuestionSummary(qe.id, qe.uuid, qe.content, qe.version, qe.date) from QuestionEntity qe inner join qe.user usr where usr.uuid = :uuid order by qe.date desc, qe.id desc"),
+                @NamedQuery(name = "questionSummariesByUserIdAfterCursor", query = "select new com.upgrad.quora.service.dto.QuestionSummary(qe.id, qe.uuid, qe.content, qe.version, qe.date) from QuestionEntity qe inner join qe.user usr where usr.uuid = :uuid and (qe.date, qe.id) < (:date, :id) order by qe.date desc, qe.id desc"),
+                @NamedQuery(name = "allQuestionSummaries", query = "select new com.upgrad.quora.service.dto.QuestionSummary(qe.id, qe.uuid, qe.content, qe.version, qe.date) from QuestionEntity qe order by qe.date desc, qe.id desc"),
+                @NamedQuery(name = "allQuestionSummariesAfterCursor", query = "select new com.upgrad.quora.service.dto.QuestionSummary(qe.id, qe.uuid, qe.content, qe.version, qe.date) from QuestionEntity qe where (qe.date, qe.id) < (:date, :id) order by qe.date desc, qe.id desc"),
+                @NamedQuery(name = "questionExport", query = "select new com.upgrad.quora.service.dto.QuestionExportRow(qe.id, qe.uuid, qe.content, qe.date, qu.uuid, ae.uuid, ae.answer, ae.date, au.uuid) from QuestionEntity qe inner join qe.user qu left join AnswerEntity ae on ae.question = qe left join ae.user au order by qe.date, qe.id, ae.date, ae.id"),
+                @NamedQuery(name = "questionExportSince", query = "select new com.upgrad.quora.service.dto.QuestionExportRow(qe.id, qe.uuid, qe.content, qe.date, qu.uuid, ae.uuid, ae.answer, ae.date, au.uuid) from QuestionEntity qe inner join qe.user qu left join AnswerEntity ae on ae.question = qe left join ae.user au where qe.date >= :since order by qe.date, qe.id, ae.date, ae.id"),
         }
 )
+@NamedNativeQueries(
+        {
+                // Deletes the question only if the user owns it or is an admin and tells in the same round trip whether it existed
+                @NamedNativeQuery(name = "deleteQuestionByUuidIfPermitted", query = "with target as (select id, user_id from question where uuid = cast(:uuid as uuid)), "
+                        + "deleted as (delete from question where id in (select id from target where user_id = :userId or :admin) returning id) "
+                        + "select (select count(*) from target) as found, (select count(*) from deleted) as deleted, (select max(id) from target) as id"),
+                // Sets only the content, only if the user owns the question and, unless :anyVersion, it still has :version.
+                // The version is compared on the updated row, so it is checked again when a concurrent edit commits first.
+                // Tells in the same round trip whether the question existed and whether the user owns it.
+                @NamedNativeQuery(name = "editQuestionContentIfOwner", query = "with target as (select id, user_id from question where uuid = cast(:uuid as uuid)), "
+                        + "updated as (update question set content = :content, version = version + 1 "
+                        + "where id in (select id from target where user_id = :userId) and (version = :version or :anyVersion) returning id, version) "
+                        + "select (select count(*) from target) as found, (select count(*) from target where user_id = :userId) as permitted, "
+                        + "(select count(*) from updated) as updated, (select max(id) from updated) as id, (select max(version) from updated) as version"),
+        }
+)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "questions")
 public class QuestionEntity implements Serializable {
 
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_id_generator")
+    // Ids are taken from the sequence 50 at a time, which lets Hibernate batch the inserts of a bulk import.
+    // The allocation size must equal the increment of QUESTION_ID_SEQ set by the V7 migration.
+    @SequenceGenerator(name = "question_id_generator", sequenceName = "question_id_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "uuid")
     @NotNull
-    @Size(max = 200)
+    @Convert(converter = UuidAttributeConverter.class)
     private String uuid;
 
     @Column(name = "content")
@@ -37,10 +67,15 @@ public class QuestionEntity implements Serializable {
     @NotNull
     private ZonedDateTime date;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private UserEntity user;
 
+    // Raised by every edit of the question. Null on a detached copy means the edit does not depend on the version it replaces
+    @Version
+    @Column(name = "version")
+    private Integer version;
+
     public long getId() {
         return id;
     }
@@ -80,4 +115,12 @@ public class QuestionEntity implements Serializable {
     public void setUser(UserEntity user) {
         this.user = user;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
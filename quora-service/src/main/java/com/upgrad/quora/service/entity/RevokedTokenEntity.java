@@ -0,0 +1,88 @@
+package com.upgrad.quora.service.entity;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+
+// An access token revoked before it expired whose USER_AUTH row no longer exists, such as a session of a deleted user
+// Only the SHA-256 digest of the token is stored, as for the ACCESS_TOKEN_DIGEST of USER_AUTH
+@Entity
+@Table(name = "revoked_token", schema = "public")
+@NamedQueries({
+        @NamedQuery(name = "revokedTokensSince", query = "select rt from RevokedTokenEntity rt where rt.revokedAt >= :since and rt.expiresAt > :now"),
+        @NamedQuery(name = "deleteExpiredRevokedTokens", query = "delete from RevokedTokenEntity rt where rt.expiresAt <= :now")
+})
+public class RevokedTokenEntity implements Serializable {
+
+    @Id
+    @Column(name = "ID")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "ACCESS_TOKEN_DIGEST")
+    @NotNull
+    @Size(min = 32, max = 32)
+    private byte[] accessTokenDigest;
+
+    @Column(name = "EXPIRES_AT")
+    @NotNull
+    private ZonedDateTime expiresAt;
+
+    @Column(name = "REVOKED_AT")
+    @NotNull
+    private ZonedDateTime revokedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public byte[] getAccessTokenDigest() {
+        return accessTokenDigest;
+    }
+
+    public void setAccessTokenDigest(byte[] accessTokenDigest) {
+        this.accessTokenDigest = accessTokenDigest;
+    }
+
+    public ZonedDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(ZonedDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public ZonedDateTime getRevokedAt() {
+        return revokedAt;
+    }
+
+    public void setRevokedAt(ZonedDateTime revokedAt) {
+        this.revokedAt = revokedAt;
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder().append(this).hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return new EqualsBuilder().append(this,obj).isEquals();
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.MULTI_LINE_STYLE);
+    }
+}
@@ -14,7 +14,10 @@ import java.time.ZonedDateTime;
 @Entity
 @Table(name = "user_auth" , schema = "public")
 @NamedQueries({
-        @NamedQuery(name = "userAuthByAccessToken", query = "select ut from UserAuthEntity ut where ut.accessToken =:accessToken")
+        @NamedQuery(name = "userAuthByAccessToken", query = "select ut from UserAuthEntity ut join fetch ut.user where ut.accessTokenDigest = :accessTokenDigest"),
+        @NamedQuery(name = "userSessionByAccessToken", query = "select new com.upgrad.quora.service.dto.UserSession(usr.id, usr.uuid, usr.role, ut.expiresAt, ut.logoutAt) from UserAuthEntity ut inner join ut.user usr where ut.accessTokenDigest = :accessTokenDigest"),
+        @NamedQuery(name = "signedOutUserAuthSince", query = "select ut from UserAuthEntity ut where ut.logoutAt >= :since and ut.expiresAt > :now"),
+        @NamedQuery(name = "activeUserAuthByUser", query = "select ut from UserAuthEntity ut where ut.user.uuid = :uuid and ut.logoutAt is null and ut.expiresAt > :now")
 })
 public class UserAuthEntity implements Serializable {
 
@@ -25,7 +28,7 @@ public class UserAuthEntity implements Serializable {
 
     @Column(name = "UUID")
     @NotNull
-    @Size(max = 200)
+    @Convert(converter = UuidAttributeConverter.class)
     private String uuid;
 
     @ManyToOne
@@ -37,6 +40,12 @@ public class UserAuthEntity implements Serializable {
     @Size(max = 500)
     private String accessToken;
 
+    // SHA-256 digest of the access token, sessions are looked up by it through a fixed size index
+    @Column(name = "ACCESS_TOKEN_DIGEST")
+    @NotNull
+    @Size(min = 32, max = 32)
+    private byte[] accessTokenDigest;
+
     @Column(name = "LOGIN_AT")
     @NotNull
     private ZonedDateTime loginAt;
@@ -80,6 +89,14 @@ public class UserAuthEntity implements Serializable {
         this.accessToken = accessToken;
     }
 
+    public byte[] getAccessTokenDigest() {
+        return accessTokenDigest;
+    }
+
+    public void setAccessTokenDigest(byte[] accessTokenDigest) {
+        this.accessTokenDigest = accessTokenDigest;
+    }
+
     public ZonedDateTime getLoginAt() {
         return loginAt;
     }
@@ -1,6 +1,8 @@
 package com.upgrad.quora.service.entity;
 
 import org.apache.commons.lang3.builder.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -15,10 +17,14 @@ import java.io.Serializable;
         {
                 @NamedQuery(name = "userByUserName", query = "select u from UserEntity u where u.userName = :userName"),
                 @NamedQuery(name = "userByEmail", query = "select u from UserEntity u where u.email = :email"),
-                @NamedQuery(name = "userByUuid", query = "select u from UserEntity u where u.uuid = :uuid"),
+                @NamedQuery(name = "userByUuid", query = "select u from UserEntity u where u.uuid = :uuid", hints = {
+                        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                        @QueryHint(name = "org.hibernate.cacheRegion", value = "uuid-lookups")}),
                 @NamedQuery(name = "deleteUserByUuid", query="delete from UserEntity u where u.uuid = :uuid"),
         }
 )
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class UserEntity implements Serializable {
 
     @Id
@@ -29,7 +35,7 @@ public class UserEntity implements Serializable {
     @Column(name = "uuid")
     @NotNull
     @OnDelete(action = OnDeleteAction.CASCADE)
-    @Size(max = 200)
+    @Convert(converter = UuidAttributeConverter.class)
     private String uuid;
 
     @Column(name = "firstname")
@@ -0,0 +1,49 @@
+package com.upgrad.quora.service.entity;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Stores the string identifiers of the entities in native 16 byte uuid columns while the API keeps exposing strings.
+ * Identifiers written before the columns were migrated are not always UUIDs, those are stored as the name based
+ * (version 3) UUID of their UTF-8 bytes, which is the same value the V6 migration converted them to,
+ * so links which still carry such an identifier keep resolving to the same row.
+ */
+@Converter
+public class UuidAttributeConverter implements AttributeConverter<String, UUID> {
+
+    private static final Pattern CANONICAL_UUID = Pattern.compile("^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$");
+
+    @Override
+    public UUID convertToDatabaseColumn(final String identifier) {
+        return identifier == null ? null : toUuid(identifier);
+    }
+
+    @Override
+    public String convertToEntityAttribute(final UUID uuid) {
+        return uuid == null ? null : uuid.toString();
+    }
+
+    /**
+     * @param identifier a canonical UUID string or a legacy identifier
+     * @return the UUID the identifier is stored as
+     */
+    public static UUID toUuid(final String identifier) {
+        if (CANONICAL_UUID.matcher(identifier).matches()) {
+            return UUID.fromString(identifier);
+        }
+        return UUID.nameUUIDFromBytes(identifier.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param identifier a canonical UUID string or a legacy identifier
+     * @return the string the entities expose for the identifier once it has been stored
+     */
+    public static String canonical(final String identifier) {
+        return identifier == null ? null : toUuid(identifier).toString();
+    }
+
+}